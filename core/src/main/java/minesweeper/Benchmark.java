@@ -0,0 +1,505 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark is a standalone harness for measuring the cost of the game board's hot paths, so that
+ * every change to them can be judged against a baseline. Each benchmark runs its operation
+ * repeatedly for a warmup period and then for a measurement period, preparing a fresh board before
+ * every operation outside of the timed section. It reports the throughput and the bytes allocated
+ * per operation, the latter corrected for the cost of measuring it.
+ *
+ * <p>Usage: <code>java minesweeper.Benchmark [name ...] [HEIGHTxWIDTH ...]</code>, for example
+ * <code>java -Xmx4g Benchmark cascade 100x100 4000x4000</code>. Without names every benchmark is
+ * run, and without sizes every size from 9x9 to 10000x10000 is used.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class Benchmark {
+  /** Names of the benchmarks, in the order they run by default */
+  private static final String[] BENCHMARKS = {
+    "footprint", "init", "count", "parallel", "cascade", "render", "replay", "solve", "seeded"
+  };
+  /** Board sizes used when none are given */
+  private static final int[][] SIZES = {{9, 9}, {16, 30}, {100, 100}, {1000, 1000}, {10000, 10000}};
+  /** Mine densities, in percent, of the board generation benchmark */
+  private static final int[] DENSITIES = {1, 10, 20, 35, 50, 75, 90};
+  /** Mine density, in percent, of an expert board */
+  private static final int EXPERT_DENSITY = 20;
+  /** Time spent warming up each benchmark, in nanoseconds */
+  private static final long WARMUP_NANOS = 500_000_000L;
+  /** Time spent measuring each benchmark, in nanoseconds */
+  private static final long MEASURE_NANOS = 1_000_000_000L;
+  /** Minimum number of measured operations of each benchmark */
+  private static final int MIN_OPS = 3;
+  /** Number of moves recorded by the journal of the replay benchmark */
+  private static final int JOURNAL_MOVES = 1_000_000;
+
+  /** Bytes allocated by reading the allocation counter twice, subtracted from every measurement */
+  private static long allocationOverhead;
+
+  /**
+   * The layout of a grid before the board was packed into a byte array: one object per grid with
+   * its own coordinate array. Only used to compare heap footprints.
+   */
+  private static class LegacyGrid {
+    private int[] coord;
+    private boolean checked;
+    private boolean mine;
+    private boolean markedMine;
+    private boolean markedQuestion;
+    private int nAdjMine;
+
+    private LegacyGrid(int y, int x) {
+      coord = new int[] {y, x};
+    }
+  }
+
+  /** Stream discarding everything written to it, counting the bytes. */
+  private static class CountingSink extends OutputStream {
+    private long written;
+
+    @Override
+    public void write(int b) {
+      written++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      written += len;
+    }
+  }
+
+  /**
+   * Measure the heap used by a packed {@link Board} and by the equivalent matrix of {@link
+   * LegacyGrid} objects for the given board size.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void footprint(int y, int x) {
+    long before = usedHeap();
+    Board board = new Board(y, x, 0);
+    long packed = usedHeap() - before;
+
+    long objects;
+    try {
+      before = usedHeap();
+      LegacyGrid[][] legacy = new LegacyGrid[y][x];
+      for (int i = 0; i < y; i++) {
+        for (int j = 0; j < x; j++) {
+          legacy[i][j] = new LegacyGrid(i, j);
+        }
+      }
+      objects = usedHeap() - before;
+      if (legacy.length != board.getHeight()) throw new AssertionError();
+    } catch (OutOfMemoryError oome) {
+      objects = -1;
+    }
+
+    System.out.printf(
+        "footprint %dx%d: packed %,d bytes (%.2f/grid), Grid[][] %s%n",
+        y,
+        x,
+        packed,
+        (double) packed / ((long) y * x),
+        objects < 0
+            ? "does not fit in the heap"
+            : String.format("%,d bytes (%.2f/grid)", objects, (double) objects / ((long) y * x)));
+  }
+
+  /**
+   * Measure {@link Board#initBoard()}, which plants the mines and keeps the adjacent mine counts,
+   * at each mine density.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void init(int y, int x) {
+    for (int density : DENSITIES) {
+      int nMines = (int) ((long) y * x * density / 100);
+      SplittableRandom random = new SplittableRandom(42);
+      measure(
+          "init " + y + "x" + x + " density " + density + "%",
+          () -> {
+            Board board = new Board(y, x, nMines, random);
+            return board::initBoard;
+          });
+    }
+  }
+
+  /**
+   * Measure a full recount of the adjacent mines of an expert density board, which isolates the
+   * counting cost from mine placement.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   * @see Board#countRows(int, int)
+   */
+  private static void count(int y, int x) {
+    Board board = expertBoard(y, x, 42);
+    measure("count " + y + "x" + x, () -> () -> board.countRows(0, y));
+  }
+
+  /**
+   * Measure {@link ParallelGenerator} on the calling thread and on a pool with each level of
+   * parallelism up to the number of available processors.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void parallel(int y, int x) {
+    int nMines = (int) ((long) y * x * EXPERT_DENSITY / 100);
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int threads = 0; threads <= processors; threads = Math.max(1, 2 * threads)) {
+      ForkJoinPool pool = threads == 0 ? null : new ForkJoinPool(threads);
+      ParallelGenerator generator = new ParallelGenerator(pool);
+      long[] seed = new long[1];
+      measure(
+          "parallel " + y + "x" + x + " threads " + threads,
+          () -> {
+            Board board = new Board(y, x, nMines);
+            long boardSeed = seed[0]++;
+            return () -> generator.generate(board, boardSeed);
+          });
+      if (pool != null) pool.shutdown();
+    }
+  }
+
+  /**
+   * Measure {@link Grid#checkGrid()} cascades starting from a grid without adjacent mines, on a
+   * sparse board where the cascade covers most of the board and on an expert density board where
+   * it stops after a few grids, with each {@link Board.RevealMode}.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void cascade(int y, int x) {
+    for (Board.RevealMode mode : Board.RevealMode.values()) {
+      for (int density : new int[] {1, EXPERT_DENSITY}) {
+        cascade(y, x, density, mode);
+      }
+    }
+  }
+
+  /**
+   * Measure {@link Grid#checkGrid()} cascades with one mine density and reveal mode.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   * @param density the mine density in percent
+   * @param mode the reveal mode of the board
+   */
+  private static void cascade(int y, int x, int density, Board.RevealMode mode) {
+    int nMines = (int) ((long) y * x * density / 100);
+    SplittableRandom random = new SplittableRandom(42);
+    long[] revealed = new long[2];
+    measure(
+        "cascade " + y + "x" + x + " density " + density + "% " + mode.name().toLowerCase(),
+        () -> {
+          Board board = new Board(y, x, nMines, random);
+          board.initBoard();
+          board.setRevealMode(mode);
+          Grid start = findEmptyGrid(board, random);
+          return () -> {
+            revealed[0] += start.check();
+            revealed[1]++;
+          };
+        });
+    System.out.printf("  %,d grids checked per cascade%n", revealed[0] / revealed[1]);
+  }
+
+  /**
+   * Measure {@link BoardRenderer} on an expert density board that changes by one check before
+   * every frame, rendering whole frames and rendering changed rows only.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void render(int y, int x) {
+    for (boolean changes : new boolean[] {false, true}) {
+      Board board = expertBoard(y, x, 42);
+      CountingSink sink = new CountingSink();
+      BoardRenderer renderer = new BoardRenderer(board, sink);
+      SplittableRandom random = new SplittableRandom(7);
+      long[] frames = new long[1];
+      measure(
+          "render " + y + "x" + x + (changes ? " changes" : " full"),
+          () -> {
+            Grid grid = board.getGrid(random.nextInt(y), random.nextInt(x));
+            if (!grid.isMine()) grid.checkGrid();
+            frames[0]++;
+            if (changes) return () -> renderer.renderChanges(false);
+            return () -> renderer.render(false);
+          });
+      System.out.printf("  %,d bytes written per frame%n", sink.written / frames[0]);
+    }
+  }
+
+  /**
+   * Measure {@link MoveJournal#replay(Path)} of a journal recording a long expert density game,
+   * mostly marks with a check every tenth move, and report the replayed moves per second. The
+   * board is generated from its seed as part of every replay.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void replay(int y, int x) {
+    try {
+      Path path = Files.createTempFile("replay", ".journal");
+      int nMines = (int) ((long) y * x * EXPERT_DENSITY / 100);
+      try (MoveJournal journal = MoveJournal.create(path, y, x, nMines, 42, 4096, 0)) {
+        Board board = journal.getEngine().getBoard();
+        SplittableRandom random = new SplittableRandom(7);
+        GameEngine.Action[] marks = {
+          GameEngine.Action.FLAG, GameEngine.Action.QUESTION, GameEngine.Action.UNMARK
+        };
+        while (journal.getMoves() < JOURNAL_MOVES) {
+          int index = random.nextInt(y * x);
+          Grid grid = gridAt(board, index);
+          if (random.nextInt(10) == 0 && board.getGridToCheck() > board.size() / 2) {
+            if (!grid.isMine() && !grid.isMarkedMine() && !grid.isMarkedQuestion()) {
+              journal.apply(GameEngine.Action.REVEAL, index / x, index % x);
+            }
+          } else if (!grid.isChecked()) {
+            journal.apply(marks[random.nextInt(marks.length)], index / x, index % x);
+          }
+        }
+      }
+
+      double nanos =
+          measure(
+              "replay " + y + "x" + x,
+              () ->
+                  () -> {
+                    try {
+                      MoveJournal.replay(path);
+                    } catch (IOException ioe) {
+                      throw new UncheckedIOException(ioe);
+                    }
+                  });
+      System.out.printf("  %,.0f moves replayed per second%n", JOURNAL_MOVES / (nanos / 1e9));
+      Files.delete(path);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * Measure {@link Solver#solve(GameEngine)} on expert density boards generated outside of the
+   * timed section, and report the share of games won and the guesses per game.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void solve(int y, int x) {
+    Solver solver = new Solver();
+    SplittableRandom random = new SplittableRandom(42);
+    long[] games = new long[3];
+    measure(
+        "solve " + y + "x" + x,
+        () -> {
+          GameEngine engine = new GameEngine(expertBoard(y, x, random.nextLong()));
+          return () -> {
+            if (solver.solve(engine)) games[1]++;
+            games[2] += solver.getGuesses();
+            games[0]++;
+          };
+        });
+    System.out.printf(
+        "  %.1f%% won, %.2f guesses per game%n",
+        100.0 * games[1] / games[0], (double) games[2] / games[0]);
+  }
+
+  /**
+   * Measure generating an expert density board from its {@link BoardId} against copying it from a
+   * {@link BoardCache} that keeps it, and report how many times faster a hit is.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   */
+  private static void seeded(int y, int x) {
+    BoardId id = new BoardId(y, x, (int) ((long) y * x * EXPERT_DENSITY / 100), 42);
+    BoardCache cache = new BoardCache((long) y * x);
+    cache.take(id);
+    double generate = measure("seeded " + y + "x" + x + " generate", () -> id::generate);
+    double hit = measure("seeded " + y + "x" + x + " cache hit", () -> () -> cache.take(id));
+    System.out.printf("  cache hit %.1fx faster than generating%n", generate / hit);
+  }
+
+  /**
+   * Generate a board with expert density.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   * @param seed the seed of the mine placement
+   * @return the generated board
+   */
+  private static Board expertBoard(int y, int x, long seed) {
+    int nMines = (int) ((long) y * x * EXPERT_DENSITY / 100);
+    Board board = new Board(y, x, nMines, new SplittableRandom(seed));
+    board.initBoard();
+    return board;
+  }
+
+  /**
+   * Find a random grid without a mine or adjacent mines, falling back to any grid without a mine.
+   *
+   * @param board the board to search
+   * @param random the random generator choosing where the search starts
+   * @return a grid to start a cascade from
+   */
+  private static Grid findEmptyGrid(Board board, SplittableRandom random) {
+    int size = board.getHeight() * board.getWidth();
+    int start = random.nextInt(size);
+    int fallback = -1;
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % size;
+      int cell = board.getCell(index);
+      if ((cell & Board.MINE) != 0) continue;
+      if ((cell & Board.N_ADJ_MINE) == 0) return gridAt(board, index);
+      if (fallback < 0) fallback = index;
+    }
+    return gridAt(board, fallback);
+  }
+
+  /**
+   * Get the grid at the given index.
+   *
+   * @param board the board holding the grid
+   * @param index the row-major index of the grid
+   * @return view of the grid
+   */
+  private static Grid gridAt(Board board, int index) {
+    return board.getGrid(index / board.getWidth(), index % board.getWidth());
+  }
+
+  /**
+   * Run an operation for the warmup period, then for the measurement period, and report its
+   * throughput and allocation. Every operation is prepared by the setup outside of the timed
+   * section.
+   *
+   * @param name the name of the measured operation
+   * @param setup prepares and returns the next operation to measure
+   * @return mean time of an operation in nanoseconds
+   */
+  private static double measure(String name, Supplier<Runnable> setup) {
+    long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+    for (int i = 0; i < MIN_OPS || System.nanoTime() < warmupEnd; i++) setup.get().run();
+
+    long ops = 0;
+    long elapsed = 0;
+    long allocated = 0;
+    long measureEnd = System.nanoTime() + MEASURE_NANOS;
+    while (ops < MIN_OPS || System.nanoTime() < measureEnd) {
+      Runnable op = setup.get();
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      op.run();
+      elapsed += System.nanoTime() - start;
+      allocated += allocatedBytes() - bytes - allocationOverhead;
+      ops++;
+    }
+    System.out.printf(
+        "%-40s %,14.1f ops/s %,12.4f ms/op %,14d B/op%n",
+        name, ops / (elapsed / 1e9), elapsed / 1e6 / ops, Math.max(0, allocated / ops));
+    return (double) elapsed / ops;
+  }
+
+  /** Measure how many bytes reading the allocation counter twice allocates by itself. */
+  private static void calibrate() {
+    long overhead = Long.MAX_VALUE;
+    for (int i = 0; i < 10_000; i++) {
+      long bytes = allocatedBytes();
+      overhead = Math.min(overhead, allocatedBytes() - bytes);
+    }
+    allocationOverhead = overhead;
+  }
+
+  /**
+   * Get the number of bytes allocated so far by the current thread.
+   *
+   * @return allocated bytes
+   */
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Get the heap in use after asking the garbage collector to settle.
+   *
+   * @return used heap in bytes
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  public static void main(String[] args) {
+    List<String> names = new ArrayList<>();
+    List<int[]> sizes = new ArrayList<>();
+    for (String arg : args) {
+      String[] size = arg.split("x");
+      if (size.length == 2) {
+        sizes.add(new int[] {Integer.parseInt(size[0]), Integer.parseInt(size[1])});
+      } else {
+        names.add(arg);
+      }
+    }
+    if (names.isEmpty()) names = List.of(BENCHMARKS);
+    if (sizes.isEmpty()) sizes = List.of(SIZES);
+
+    calibrate();
+    for (String name : names) {
+      for (int[] size : sizes) {
+        int y = size[0];
+        int x = size[1];
+        switch (name) {
+          case "footprint":
+            footprint(y, x);
+            break;
+          case "init":
+            init(y, x);
+            break;
+          case "count":
+            count(y, x);
+            break;
+          case "parallel":
+            parallel(y, x);
+            break;
+          case "cascade":
+            cascade(y, x);
+            break;
+          case "render":
+            render(y, x);
+            break;
+          case "replay":
+            replay(y, x);
+            break;
+          case "solve":
+            solve(y, x);
+            break;
+          case "seeded":
+            seeded(y, x);
+            break;
+          default:
+            System.err.println("Unknown benchmark: " + name);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * BitboardReveal checks grids of a {@link Board} by treating each row as a bitset, so that a
+ * cascade is expanded 64 grids at a time. It keeps two bitsets over the board: the grids that are
+ * not checked yet, and among them the grids without a mine or adjacent mines, which are the grids a
+ * cascade spreads through. A cascade grows a region from the checked grid by dilating it into the
+ * neighboring rows and filling runs within a row with carry propagation, sweeping down and up until
+ * the region stops growing. Every unchecked grid in or next to the region is then checked, which is
+ * the same set of grids, with the same number of grids to check remaining, as the worklist cascade
+ * of {@link Board#checkCell(int)}.
+ *
+ * <p>The bitsets are built from the board when the engine is created and kept up to date by its
+ * own checks, so the board must route every check through the engine while it is selected.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BitboardReveal {
+  /** The board being checked */
+  private final Board board;
+  /** Height of the board */
+  private final int height;
+  /** Width of the board */
+  private final int width;
+  /** Number of words of a row */
+  private final int words;
+  /** Valid bits of the last word of a row */
+  private final long lastMask;
+  /** Grids not checked yet */
+  private final long[] unchecked;
+  /** Unchecked grids without a mine or adjacent mines */
+  private final long[] open;
+  /** The region of the current cascade, cleared after each cascade */
+  private final long[] region;
+  /** Horizontal dilation of a row, reused across rows */
+  private final long[] spread;
+  /** Bits of the region grown into a row, reused across rows */
+  private final long[] seeds;
+  /** Number of grids checked by the current cascade */
+  private int revealed;
+
+  /**
+   * Initialize an engine from the current state of the board.
+   *
+   * @param board the board to check
+   */
+  BitboardReveal(Board board) {
+    this.board = board;
+    height = board.getHeight();
+    width = board.getWidth();
+    words = (width + 63) >>> 6;
+    lastMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+    unchecked = new long[height * words];
+    open = new long[height * words];
+    region = new long[height * words];
+    spread = new long[words];
+    seeds = new long[words];
+
+    for (int i = 0, index = 0; i < height; i++) {
+      for (int j = 0; j < width; j++, index++) {
+        int cell = board.getCell(index);
+        if ((cell & Board.CHECKED) != 0) continue;
+        long bit = 1L << j;
+        unchecked[i * words + (j >>> 6)] |= bit;
+        if ((cell & (Board.MINE | Board.N_ADJ_MINE)) == 0) open[i * words + (j >>> 6)] |= bit;
+      }
+    }
+  }
+
+  /**
+   * Check the grid at the given index, which must not contain a mine, and every grid its cascade
+   * reaches. The number of grids to check of the board is left for the caller to update.
+   *
+   * @param index the row-major index of the grid
+   * @return number of grids checked
+   */
+  int reveal(int index) {
+    int row = index / width;
+    int column = index % width;
+    int word = row * words + (column >>> 6);
+    long bit = 1L << column;
+    if ((unchecked[word] & bit) == 0) return 0;
+    revealed = 0;
+    if ((open[word] & bit) == 0) {
+      check(row, word - row * words, bit);
+      return revealed;
+    }
+
+    region[word] = bit;
+    int top = row;
+    int bottom = row;
+    boolean changed;
+    do {
+      changed = false;
+      for (int r = Math.max(0, top - 1); r <= Math.min(height - 1, bottom + 1); r++) {
+        if (grow(r)) {
+          changed = true;
+          top = Math.min(top, r);
+          bottom = Math.max(bottom, r);
+        }
+      }
+      for (int r = Math.min(height - 1, bottom + 1); r >= Math.max(0, top - 1); r--) {
+        if (grow(r)) {
+          changed = true;
+          top = Math.min(top, r);
+          bottom = Math.max(bottom, r);
+        }
+      }
+    } while (changed);
+
+    int from = Math.max(0, top - 1);
+    int to = Math.min(height - 1, bottom + 1);
+    for (int r = from; r <= to; r++) {
+      neighborhood(r);
+      for (int k = 0; k < words; k++) {
+        for (long bits = spread[k] & unchecked[r * words + k]; bits != 0; bits &= bits - 1) {
+          check(r, k, Long.lowestOneBit(bits));
+        }
+      }
+    }
+    for (int r = top; r <= bottom; r++) {
+      Arrays.fill(region, r * words, (r + 1) * words, 0L);
+    }
+    return revealed;
+  }
+
+  /**
+   * Check one unchecked grid on the board and clear it from the bitsets.
+   *
+   * @param row the row of the grid
+   * @param k the word of the grid within its row
+   * @param bit the bit of the grid within its word
+   */
+  private void check(int row, int k, long bit) {
+    int word = row * words + k;
+    unchecked[word] &= ~bit;
+    open[word] &= ~bit;
+    board.reveal(row * width + (k << 6) + Long.numberOfTrailingZeros(bit));
+    revealed++;
+  }
+
+  /**
+   * Grow the region into a row: add the open grids next to the region in the rows above, below and
+   * within the row, then fill every open run of the row that touches the region.
+   *
+   * @param r the row to grow
+   * @return <code>true</code> if the region gained grids in the row
+   */
+  private boolean grow(int r) {
+    neighborhood(r);
+    int base = r * words;
+    long any = 0;
+    for (int k = 0; k < words; k++) {
+      seeds[k] = spread[k] & open[base + k];
+      any |= seeds[k];
+    }
+    if (any == 0) return false;
+
+    long carry = 0;
+    for (int k = 0; k < words; k++) {
+      long m = open[base + k];
+      long s = seeds[k] | (carry & m & 1L);
+      long up = s | (m & ~(m + s));
+      carry = (up >>> 63) & 1L;
+      seeds[k] = up;
+    }
+    carry = 0;
+    for (int k = words - 1; k >= 0; k--) {
+      long m = Long.reverse(open[base + k]);
+      long s = Long.reverse(seeds[k]) | (carry & m & 1L);
+      long down = s | (m & ~(m + s));
+      carry = (down >>> 63) & 1L;
+      seeds[k] |= Long.reverse(down);
+    }
+
+    boolean changed = false;
+    for (int k = 0; k < words; k++) {
+      long grown = region[base + k] | seeds[k];
+      if (grown != region[base + k]) {
+        region[base + k] = grown;
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Compute into {@link #spread} the grids of a row that are the region or next to it, from the
+   * region in the row itself and in the rows above and below.
+   *
+   * @param r the row
+   */
+  private void neighborhood(int r) {
+    for (int k = 0; k < words; k++) {
+      long v = region[r * words + k];
+      if (r > 0) v |= region[(r - 1) * words + k];
+      if (r < height - 1) v |= region[(r + 1) * words + k];
+      spread[k] = v;
+    }
+    long previous = 0;
+    for (int k = 0; k < words; k++) {
+      long v = spread[k];
+      long next = k + 1 < words ? spread[k + 1] : 0;
+      spread[k] = v | (v << 1) | (previous >>> 63) | (v >>> 1) | (next << 63);
+      previous = v;
+    }
+    spread[words - 1] &= lastMask;
+  }
+}
@@ -0,0 +1,952 @@
+package minesweeper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Board stores the state of every grid in a single packed byte array and provides all related
+ * functionalities, such as priting the game board, randomizing mines, and validating a coordinate
+ * is within the board's range. Each byte holds the number of adjacent mines in its lower four bits
+ * and the mine, checked, marked mine and marked question flags in its upper four bits. {@link Grid}
+ * instances are lightweight views over one of those bytes.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class Board {
+  /** Engines expanding the cascade of a checked grid */
+  public enum RevealMode {
+    /** Visit the cascade grid by grid from a worklist queue */
+    WORKLIST,
+    /** Expand the cascade 64 grids at a time over bitsets of the board's rows */
+    BITBOARD,
+    /**
+     * Check and mark grids from many threads at once, with a compare-and-set per grid and the
+     * cascades holding the lock of the region of rows they expand in
+     */
+    CONCURRENT
+  }
+
+  /** Bits of a cell holding the number of adjacent mines */
+  static final int N_ADJ_MINE = 0x0F;
+  /** Bit of a cell set when the grid contains a mine */
+  static final int MINE = 0x10;
+  /** Bit of a cell set when the grid is checked by the user */
+  static final int CHECKED = 0x20;
+  /** Bit of a cell set when the grid is marked as a mine field */
+  static final int MARKED_MINE = 0x40;
+  /** Bit of a cell set when the grid is marked as a question field */
+  static final int MARKED_QUESTION = 0x80;
+  /** Largest number of grids of a board, the largest array length every JVM allows */
+  static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+  /** Atomic access to the elements of {@link #cells} */
+  private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+  /** Atomic access to the elements of {@link #changed} */
+  private static final VarHandle CHANGED = MethodHandles.arrayElementVarHandle(long[].class);
+  /** Atomic access to {@link #gridToCheck} */
+  private static final VarHandle GRID_TO_CHECK;
+
+  static {
+    try {
+      GRID_TO_CHECK = MethodHandles.lookup().findVarHandle(Board.class, "gridToCheck", int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** All eight neighbor directions, clockwise from the grid above */
+  static final int ALL_NEIGHBORS = 0xFF;
+  /** Neighbor directions that leave the board through the top edge */
+  private static final int TOP_NEIGHBORS = 0b1000_0011;
+  /** Neighbor directions that leave the board through the right edge */
+  private static final int RIGHT_NEIGHBORS = 0b0000_1110;
+  /** Neighbor directions that leave the board through the bottom edge */
+  private static final int BOTTOM_NEIGHBORS = 0b0011_1000;
+  /** Neighbor directions that leave the board through the left edge */
+  private static final int LEFT_NEIGHBORS = 0b1110_0000;
+
+  /** Number of mines in the board */
+  private int nMines;
+  /** Height of the board */
+  private int y;
+  /** Width of the board */
+  private int x;
+  /** The packed state of every grid, stored row by row */
+  private byte[] cells;
+  /** Number of grid remaining to be checked */
+  private int gridToCheck;
+  /** Random generator used to place the mines */
+  private final RandomGenerator random;
+  /** The ID the board was generated from, or <code>null</code> */
+  private BoardId id;
+  /** One bit per grid, set when its visible state changed since the changes were last taken */
+  private final long[] changed;
+  /** Indexes of the words of {@link #changed} that have a bit set */
+  private int[] changedWords = new int[16];
+  /** Number of entries in {@link #changedWords} */
+  private int nChangedWords;
+  /** How cascades of checked grids are expanded */
+  private RevealMode revealMode = RevealMode.WORKLIST;
+  /** The bitboard engine, created when its mode is selected and rebuilt after mines move */
+  private BitboardReveal bitboard;
+  /** The concurrent engine, created when its mode is selected */
+  private ConcurrentReveal concurrent;
+  /** The file every change of the board is written through to, or <code>null</code> if unsaved */
+  private BoardFile file;
+  /** Renderer printing the board to the standard output, created on the first print */
+  private BoardRenderer renderer;
+  /** Index offset of each neighbor direction, clockwise from the grid above */
+  private final int[] neighborOffsets;
+  /**
+   * Ring buffer of grids without adjacent mines whose neighbors are still to be checked. Its
+   * capacity is a power of two, and it is reused across checks.
+   */
+  private int[] worklist = new int[64];
+
+  /**
+   * Initialize the game board with given height and width, and number of mines of the board, which
+   * is used to measure number of mines to plant. Mines are placed with the default random
+   * generator.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   * @param nMines number of mines to be planted
+   * @throws IllegalArgumentException if the board has more than {@link #MAX_SIZE} grids, or if the
+   *     number of mines does not fit in the board
+   */
+  public Board(int y, int x, int nMines) {
+    this(y, x, nMines, RandomGenerator.getDefault());
+  }
+
+  /**
+   * Initialize the game board with given height and width, number of mines of the board, and the
+   * random generator used to place the mines. A seeded generator always places the mines in the
+   * same grids.
+   *
+   * @param y the height of the board
+   * @param x the width of the board
+   * @param nMines number of mines to be planted
+   * @param random the random generator used to place the mines
+   * @throws IllegalArgumentException if the board has more than {@link #MAX_SIZE} grids, or if the
+   *     number of mines does not fit in the board
+   */
+  public Board(int y, int x, int nMines, RandomGenerator random) {
+    long size = (long) y * x;
+    if (y <= 0 || x <= 0 || size > MAX_SIZE) {
+      throw new IllegalArgumentException("Invalid board size: " + y + "x" + x);
+    }
+    if (nMines < 0 || nMines > size) {
+      throw new IllegalArgumentException("Invalid number of mines: " + nMines);
+    }
+    boolean timed = Metrics.isEnabled();
+    long start = timed ? System.nanoTime() : 0;
+    this.y = y;
+    this.x = x;
+    this.nMines = nMines;
+    this.random = random;
+    cells = new byte[(int) size];
+    gridToCheck = y * x - nMines;
+    neighborOffsets = new int[] {-x, -x + 1, 1, x + 1, x, x - 1, -1, -x - 1};
+    changed = new long[(cells.length + 63) >>> 6];
+    if (timed) Metrics.recordAllocation(cells.length, System.nanoTime() - start);
+  }
+
+  /**
+   * Get the height of the board.
+   *
+   * @return height of the board
+   */
+  public int getHeight() {
+    return y;
+  }
+
+  /**
+   * Get the width of the board.
+   *
+   * @return width of the board
+   */
+  public int getWidth() {
+    return x;
+  }
+
+  /**
+   * Get the engine expanding the cascade of a checked grid.
+   *
+   * @return the reveal mode
+   */
+  public RevealMode getRevealMode() {
+    return revealMode;
+  }
+
+  /**
+   * Select the engine expanding the cascade of a checked grid. All engines check the same grids.
+   * {@link RevealMode#BITBOARD} processes 64 grids per word operation, which pays off on large
+   * boards with wide open areas, at the cost of three bits per grid of extra memory. {@link
+   * RevealMode#CONCURRENT} lets many threads check and mark grids of a shared board at once; the
+   * mines must not move while it is shared, so its first check must be made before, and it is not
+   * written through to a file. The mode must be selected while no other thread uses the board.
+   *
+   * @param revealMode the reveal mode
+   * @throws IllegalStateException if the concurrent mode is selected while the board is written
+   *     through to a file
+   * @see BitboardReveal
+   * @see ConcurrentReveal
+   */
+  public void setRevealMode(RevealMode revealMode) {
+    if (revealMode == RevealMode.CONCURRENT && file != null) {
+      throw new IllegalStateException("A board written through to a file cannot be concurrent");
+    }
+    this.revealMode = revealMode;
+    bitboard = revealMode == RevealMode.BITBOARD ? new BitboardReveal(this) : null;
+    concurrent = revealMode == RevealMode.CONCURRENT ? new ConcurrentReveal(this) : null;
+    nChangedWords = 0;
+    for (int word = 0; word < changed.length; word++) {
+      if (changed[word] != 0) appendChangedWord(word);
+    }
+  }
+
+  /**
+   * Get a {@link Grid} view of the given coordinate. The view does not hold any state of its own,
+   * so it is cheap to create and always reflects the current state of the board.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return view of the grid at the coordinate
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  public Grid getGrid(int y, int x) {
+    if (!validateCoord(y, x)) {
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of board: " + y + " " + x);
+    }
+    return new Grid(this, y, x);
+  }
+
+  /**
+   * Get the packed state of the grid at the given index.
+   *
+   * @param index the row-major index of the grid
+   * @return the packed state as an unsigned value
+   */
+  int getCell(int index) {
+    return cells[index] & 0xFF;
+  }
+
+  /**
+   * Replace the packed state of the grid at the given index and record the grid as changed.
+   *
+   * @param index the row-major index of the grid
+   * @param state the new packed state
+   */
+  void setCell(int index, int state) {
+    cells[index] = (byte) state;
+    markChanged(index);
+    if (file != null) file.writeCell(index, state);
+  }
+
+  /**
+   * Clear then set bits of the packed state of the grid at the given index and record the grid as
+   * changed. In {@link RevealMode#CONCURRENT}, the update is a compare-and-set retried until it
+   * applies, and marks are never set on a grid checked in the meantime.
+   *
+   * @param index the row-major index of the grid
+   * @param clear the bits to clear
+   * @param set the bits to set
+   */
+  void updateCell(int index, int clear, int set) {
+    if (revealMode != RevealMode.CONCURRENT) {
+      setCell(index, (cells[index] & ~clear) | set);
+      return;
+    }
+    int cell;
+    int state;
+    do {
+      cell = (byte) CELLS.getVolatile(cells, index);
+      if ((cell & CHECKED) != 0 && set != 0) return;
+      state = (cell & ~clear) | set;
+    } while (!CELLS.compareAndSet(cells, index, (byte) cell, (byte) state));
+    markChanged(index);
+  }
+
+  /**
+   * Check a grid for {@link ConcurrentReveal}, unless another thread checked it first. Only the
+   * thread whose compare-and-set marks the grid as checked counts it, so overlapping cascades
+   * never count a grid twice. The caller subtracts the grids it checked from {@link
+   * #gridToCheck}.
+   *
+   * @param index the row-major index of the grid
+   * @return number of adjacent mines of the grid, or <code>-1</code> if the grid contains a mine or
+   *     is already checked
+   */
+  int tryReveal(int index) {
+    int cell;
+    do {
+      cell = (byte) CELLS.getVolatile(cells, index);
+      if ((cell & (MINE | CHECKED)) != 0) return -1;
+    } while (!CELLS.compareAndSet(
+        cells, index, (byte) cell, (byte) ((cell & ~(MARKED_MINE | MARKED_QUESTION)) | CHECKED)));
+    markChanged(index);
+    return cell & N_ADJ_MINE;
+  }
+
+  /**
+   * Write every later change of the board through to a file, or stop doing so. Concurrent checks
+   * and marks are not ordered the way a file must be written, so a board in {@link
+   * RevealMode#CONCURRENT} cannot be attached.
+   *
+   * @param file the file holding the board, or <code>null</code> to detach the current one
+   * @throws IllegalStateException if a file is attached to a board in {@link RevealMode#CONCURRENT}
+   * @see BoardFile
+   */
+  void attach(BoardFile file) {
+    if (file != null && revealMode == RevealMode.CONCURRENT) {
+      throw new IllegalStateException("A concurrent board cannot be written through to a file");
+    }
+    this.file = file;
+  }
+
+  /**
+   * Copy the packed state of every grid into a buffer, starting at its current position.
+   *
+   * @param buffer the buffer to copy into
+   */
+  void saveCells(ByteBuffer buffer) {
+    buffer.put(cells);
+  }
+
+  /**
+   * Replace the packed state of every grid with the bytes of a buffer and set the number of grids
+   * remaining to be checked, as saved by {@link #saveCells(ByteBuffer)}.
+   *
+   * @param buffer the buffer to copy from, starting at its current position
+   * @param gridToCheck the number of grids remaining to be checked
+   */
+  void restoreCells(ByteBuffer buffer, int gridToCheck) {
+    buffer.get(cells);
+    this.gridToCheck = gridToCheck;
+    bitboard = revealMode == RevealMode.BITBOARD ? new BitboardReveal(this) : null;
+  }
+
+  /**
+   * Record that the visible state of a grid changed since the last call to {@link
+   * #takeChangedGrids()}.
+   *
+   * @param index the row-major index of the grid
+   */
+  private void markChanged(int index) {
+    int word = index >>> 6;
+    if (revealMode == RevealMode.CONCURRENT) {
+      // Only the thread that makes the word non-zero lists it, and the list is rarely contended.
+      if ((long) CHANGED.getAndBitwiseOr(changed, word, 1L << index) == 0) {
+        synchronized (changed) {
+          appendChangedWord(word);
+        }
+      }
+      return;
+    }
+    long bits = changed[word];
+    if (bits == 0) appendChangedWord(word);
+    changed[word] = bits | (1L << index);
+  }
+
+  /**
+   * Add a word of {@link #changed} to {@link #changedWords}.
+   *
+   * @param word the index of the word
+   */
+  private void appendChangedWord(int word) {
+    if (nChangedWords == changedWords.length) {
+      changedWords = Arrays.copyOf(changedWords, nChangedWords * 2);
+    }
+    changedWords[nChangedWords++] = word;
+  }
+
+  /**
+   * Get the grids whose visible state changed since the previous call, for example by being
+   * checked or marked, and start recording changes afresh. Only the changed part of the board is
+   * visited, so the cost is proportional to the number of changes rather than to the board size.
+   * In {@link RevealMode#CONCURRENT}, the listed words of changes are taken atomically instead, so
+   * changes recorded by other threads meanwhile are either returned or kept for the next call.
+   * Changes must be taken by one thread at a time.
+   *
+   * @return row-major indexes of the changed grids in ascending order
+   */
+  public int[] takeChangedGrids() {
+    if (revealMode == RevealMode.CONCURRENT) return takeChangedGridsAtomically();
+    Arrays.sort(changedWords, 0, nChangedWords);
+    int count = 0;
+    for (int i = 0; i < nChangedWords; i++) count += Long.bitCount(changed[changedWords[i]]);
+
+    int[] grids = new int[count];
+    int n = 0;
+    for (int i = 0; i < nChangedWords; i++) {
+      int word = changedWords[i];
+      for (long bits = changed[word]; bits != 0; bits &= bits - 1) {
+        grids[n++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      changed[word] = 0;
+    }
+    nChangedWords = 0;
+    return grids;
+  }
+
+  /**
+   * Take the changed grids from the words listed in {@link #changedWords} with an atomic exchange
+   * of each word. A word made non-zero again after it is taken is listed again by the thread that
+   * changes it.
+   *
+   * @return row-major indexes of the changed grids in ascending order
+   */
+  private int[] takeChangedGridsAtomically() {
+    int[] words;
+    synchronized (changed) {
+      words = Arrays.copyOf(changedWords, nChangedWords);
+      nChangedWords = 0;
+    }
+    Arrays.sort(words);
+    long[] taken = new long[words.length];
+    int count = 0;
+    for (int i = 0; i < words.length; i++) {
+      taken[i] = (long) CHANGED.getAndSet(changed, words[i], 0L);
+      count += Long.bitCount(taken[i]);
+    }
+
+    int[] grids = new int[count];
+    int n = 0;
+    for (int i = 0; i < words.length; i++) {
+      for (long bits = taken[i]; bits != 0; bits &= bits - 1) {
+        grids[n++] = (words[i] << 6) + Long.numberOfTrailingZeros(bits);
+      }
+    }
+    return grids;
+  }
+
+  /**
+   * Get the directions of the neighbors of a grid that are within the board. Bit <i>d</i> of the
+   * mask is set if the neighbor in direction <i>d</i> exists, where the directions are numbered
+   * clockwise from the grid above. Walking the set bits with {@link #getNeighbor(int, int)} visits
+   * every neighbor without allocating.
+   *
+   * @param index the row-major index of the grid
+   * @return mask of the valid neighbor directions
+   */
+  int getNeighborMask(int index) {
+    return getNeighborMask(index / x, index % x);
+  }
+
+  /**
+   * Get the directions of the neighbors of the grid at the given coordinate that are within the
+   * board.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return mask of the valid neighbor directions
+   * @see #getNeighborMask(int)
+   */
+  int getNeighborMask(int y, int x) {
+    int mask = ALL_NEIGHBORS;
+    if (y == 0) mask &= ~TOP_NEIGHBORS;
+    if (y == this.y - 1) mask &= ~BOTTOM_NEIGHBORS;
+    if (x == 0) mask &= ~LEFT_NEIGHBORS;
+    if (x == this.x - 1) mask &= ~RIGHT_NEIGHBORS;
+    return mask;
+  }
+
+  /**
+   * Get the index of the neighbor in the given direction. The direction must be one of the set
+   * bits of {@link #getNeighborMask(int)}.
+   *
+   * @param index the row-major index of the grid
+   * @param direction the direction, numbered clockwise from the grid above
+   * @return index of the neighbor
+   */
+  int getNeighbor(int index, int direction) {
+    return index + neighborOffsets[direction];
+  }
+
+  /**
+   * Count number of grids with mines within the adjacent grids of a grid.
+   *
+   * @param index the row-major index of the grid
+   * @param mask the valid neighbor directions of the grid
+   * @return number of adjacent mines
+   */
+  int countAdjMines(int index, int mask) {
+    int nAdjMine = 0;
+    for (int m = mask; m != 0; m &= m - 1) {
+      nAdjMine += (cells[index + neighborOffsets[Integer.numberOfTrailingZeros(m)]] & MINE) >>> 4;
+    }
+    return nAdjMine;
+  }
+
+  /**
+   * Check the grid at the given index. If the grid does not contain any neighboring grids with
+   * mines, every adjacent grid that is neither checked nor a mine is checked as well, and the
+   * process repeats until the boundary is made of checked grids with adjacent mines. Grids with no
+   * adjacent mines are kept on an explicit {@link #worklist} queue instead of the call stack, so
+   * the size of the cascade is not limited by the thread's stack. The queue is visited breadth
+   * first, which keeps it no larger than the edge of the cascade. In {@link RevealMode#BITBOARD},
+   * the cascade is expanded by {@link BitboardReveal} instead, and in {@link
+   * RevealMode#CONCURRENT} by {@link ConcurrentReveal}. A grid that is already checked is left as
+   * it is.
+   *
+   * @param index the row-major index of the grid
+   * @return the number of grids checked, including the cascade, or <code>-1</code> if the grid
+   *     contains a mine and now the game is over
+   * @see Grid#checkGrid()
+   */
+  int checkCell(int index) {
+    if ((cells[index] & MINE) != 0) return -1;
+    if ((cells[index] & CHECKED) != 0) return 0;
+    if (revealMode == RevealMode.BITBOARD) {
+      if (bitboard == null) bitboard = new BitboardReveal(this);
+      return subtractGridToCheck(bitboard.reveal(index));
+    }
+    if (revealMode == RevealMode.CONCURRENT) return subtractGridToCheck(concurrent.reveal(index));
+
+    int size = 0;
+    if (reveal(index) == 0) worklist[size++] = index;
+    return flood(size, 1);
+  }
+
+  /**
+   * Chord the checked grid at the given index: check every neighbor that is neither checked nor
+   * marked as a mine field at once. The neighbors are checked as one batch: every one of them
+   * seeds the same cascade, and {@link #gridToCheck} is updated once for the whole move. If one of
+   * the neighbors contains a mine, nothing is checked.
+   *
+   * @param index the row-major index of the checked grid
+   * @return the number of grids checked, including their cascades, or <code>-1</code> if a
+   *     neighbor contains a mine and now the game is over
+   * @see Grid#chordGrid()
+   */
+  int chordCell(int index) {
+    int mask = getNeighborMask(index);
+    for (int m = mask; m != 0; m &= m - 1) {
+      int cell = cells[index + neighborOffsets[Integer.numberOfTrailingZeros(m)]];
+      if ((cell & (MINE | CHECKED | MARKED_MINE)) == MINE) return -1;
+    }
+    if (revealMode == RevealMode.BITBOARD) {
+      if (bitboard == null) bitboard = new BitboardReveal(this);
+      int revealed = 0;
+      for (int m = mask; m != 0; m &= m - 1) {
+        int neighbor = index + neighborOffsets[Integer.numberOfTrailingZeros(m)];
+        if ((cells[neighbor] & MARKED_MINE) == 0) revealed += bitboard.reveal(neighbor);
+      }
+      return subtractGridToCheck(revealed);
+    }
+    if (revealMode == RevealMode.CONCURRENT) {
+      int revealed = 0;
+      for (int m = mask; m != 0; m &= m - 1) {
+        int neighbor = index + neighborOffsets[Integer.numberOfTrailingZeros(m)];
+        if ((cells[neighbor] & MARKED_MINE) == 0) revealed += concurrent.reveal(neighbor);
+      }
+      return subtractGridToCheck(revealed);
+    }
+
+    int size = 0;
+    int revealed = 0;
+    for (int m = mask; m != 0; m &= m - 1) {
+      int neighbor = index + neighborOffsets[Integer.numberOfTrailingZeros(m)];
+      if ((cells[neighbor] & (CHECKED | MARKED_MINE)) != 0) continue;
+      revealed++;
+      if (reveal(neighbor) == 0) worklist[size++] = neighbor;
+    }
+    return flood(size, revealed);
+  }
+
+  /**
+   * Expand the cascade of the grids without adjacent mines at the start of the {@link #worklist},
+   * then subtract every grid checked from {@link #gridToCheck} at once.
+   *
+   * @param size number of grids in the worklist
+   * @param revealed number of grids already checked by the move
+   * @return number of grids checked by the move
+   */
+  private int flood(int size, int revealed) {
+    int head = 0;
+    while (size > 0) {
+      int current = worklist[head];
+      head = (head + 1) & (worklist.length - 1);
+      size--;
+      for (int m = getNeighborMask(current); m != 0; m &= m - 1) {
+        int neighbor = current + neighborOffsets[Integer.numberOfTrailingZeros(m)];
+        if ((cells[neighbor] & (MINE | CHECKED)) == 0) {
+          revealed++;
+          if (reveal(neighbor) != 0) continue;
+          if (size == worklist.length) {
+            worklist = growWorklist(head, size);
+            head = 0;
+          }
+          worklist[(head + size++) & (worklist.length - 1)] = neighbor;
+        }
+      }
+    }
+    return subtractGridToCheck(revealed);
+  }
+
+  /**
+   * Count the neighbors of a grid marked as mine fields.
+   *
+   * @param index the row-major index of the grid
+   * @return number of adjacent grids marked as mine fields
+   */
+  int countMarkedMines(int index) {
+    int marked = 0;
+    for (int m = getNeighborMask(index); m != 0; m &= m - 1) {
+      marked += (cells[index + neighborOffsets[Integer.numberOfTrailingZeros(m)]] & MARKED_MINE)
+          >>> 6;
+    }
+    return marked;
+  }
+
+  /**
+   * Double the capacity of the {@link #worklist} ring buffer, unwrapping its contents so that the
+   * oldest entry is at index 0.
+   *
+   * @param head position of the oldest entry
+   * @param size number of entries
+   * @return the grown worklist
+   */
+  private int[] growWorklist(int head, int size) {
+    int[] grown = new int[worklist.length * 2];
+    int tail = worklist.length - head;
+    System.arraycopy(worklist, head, grown, 0, tail);
+    System.arraycopy(worklist, 0, grown, tail, size - tail);
+    return grown;
+  }
+
+  /**
+   * Mark a grid without a mine as checked and clear its marks. The caller subtracts the grids it
+   * checked from {@link #gridToCheck} once the whole move is done.
+   *
+   * @param index the row-major index of the grid
+   * @return number of adjacent mines of the grid
+   */
+  int reveal(int index) {
+    int cell = cells[index];
+    cells[index] = (byte) ((cell & ~(MARKED_MINE | MARKED_QUESTION)) | CHECKED);
+    markChanged(index);
+    if (file != null) file.writeCell(index, cells[index]);
+    return cell & N_ADJ_MINE;
+  }
+
+  /**
+   * Get the number of grids in the board.
+   *
+   * @return number of grids
+   */
+  int size() {
+    return cells.length;
+  }
+
+  /**
+   * Get the value of {@link #gridToCheck}.
+   *
+   * @return number of remaining grids to check
+   */
+  public int getGridToCheck() {
+    return (int) GRID_TO_CHECK.getVolatile(this);
+  }
+
+  /** When a grid is successfully checked, decrement the {@link #gridToCheck} attribute. */
+  public void decrementGridToCheck() {
+    subtractGridToCheck(1);
+  }
+
+  /**
+   * Subtract the grids checked by a move from the {@link #gridToCheck} attribute. The update is
+   * atomic and made once per move rather than once per grid, so threads checking grids of a
+   * {@link RevealMode#CONCURRENT} board rarely contend on it.
+   *
+   * @param checked number of grids checked
+   * @return number of grids checked
+   */
+  private int subtractGridToCheck(int checked) {
+    if (checked == 0) return 0;
+    int left = (int) GRID_TO_CHECK.getAndAdd(this, -checked) - checked;
+    if (file != null) file.writeGridToCheck(left);
+    return checked;
+  }
+
+  /**
+   * Plant mines in randomly chosen grids of the game board until the number of mines planted
+   * equals the value of data field {@link #nMines}. The number of adjacent mines of every grid is
+   * kept up to date as each mine is planted, so no separate counting pass is needed.
+   *
+   * @see #randomizeMines()
+   * @see Metrics
+   */
+  public void initBoard() {
+    if (!Metrics.isEnabled()) {
+      randomizeMines();
+    } else {
+      long start = System.nanoTime();
+      randomizeMines();
+      Metrics.recordPlanting(
+          nMines, Math.min(nMines, cells.length - nMines), System.nanoTime() - start);
+    }
+    if (file != null) file.writeCells(this);
+  }
+
+  /**
+   * Uncheck and unmark every grid while keeping the mines, as if no move had been made. The whole
+   * board is written through to the attached file, if any.
+   */
+  void clearChecks() {
+    for (int i = 0; i < cells.length; i++) cells[i] &= MINE | N_ADJ_MINE;
+    gridToCheck = cells.length - nMines;
+    for (int i = 0; i < nChangedWords; i++) changed[changedWords[i]] = 0;
+    nChangedWords = 0;
+    bitboard = null;
+    if (file != null) file.writeCells(this);
+  }
+
+  /**
+   * Remove every mine and every mark and uncheck every grid, so that the board can be initialized
+   * again with {@link #initBoard()} without allocating a new one. The whole board is written
+   * through to the attached file, if any, as it is again by {@link #initBoard()}.
+   */
+  public void reset() {
+    Arrays.fill(cells, (byte) 0);
+    gridToCheck = cells.length - nMines;
+    for (int i = 0; i < nChangedWords; i++) changed[changedWords[i]] = 0;
+    nChangedWords = 0;
+    bitboard = null;
+    if (file != null) file.writeCells(this);
+  }
+
+  /**
+   * Populate the game board with mines as specified in the data field {@link #nMines}. Every set of
+   * grids of that size is equally likely. Mines are chosen with Floyd's sampling algorithm, which
+   * draws one random number per mine and uses the mine bits of the board as its set, so no memory
+   * besides the board is needed. When more than half of the board holds mines, every grid is mined
+   * first and the empty grids are chosen the same way instead.
+   *
+   * @see #sample(int, int)
+   */
+  private void randomizeMines() {
+    if (nMines <= cells.length / 2) {
+      sample(nMines, 0);
+    } else {
+      for (int i = 0, index = 0; i < y; i++) {
+        for (int j = 0; j < x; j++, index++) {
+          cells[index] = (byte) (MINE | Integer.bitCount(getNeighborMask(i, j)));
+        }
+      }
+      sample(cells.length - nMines, MINE);
+    }
+  }
+
+  /**
+   * Choose <code>n</code> distinct grids uniformly with Floyd's algorithm and flip their mine bit
+   * away from <code>from</code>. A grid whose mine bit differs from <code>from</code> has already
+   * been chosen.
+   *
+   * @param n number of grids to choose
+   * @param from the mine bit of the grids that have not been chosen yet
+   */
+  private void sample(int n, int from) {
+    for (int j = cells.length - n; j < cells.length; j++) {
+      int t = random.nextInt(j + 1);
+      int chosen = (cells[t] & MINE) != from ? j : t;
+      if (from == 0) plantMine(chosen);
+      else removeMine(chosen);
+    }
+  }
+
+  /**
+   * Plant <code>n</code> mines in uniformly chosen grids between two indexes, without updating any
+   * adjacent mine counts. Used to fill one stripe of the board independently of the others; the
+   * counts are filled in afterwards by {@link #countRows(int, int)}.
+   *
+   * @param start the index of the first grid of the range
+   * @param end the index after the last grid of the range
+   * @param n number of mines to plant
+   * @param random the random generator of the range
+   * @see ParallelGenerator
+   */
+  void plantMines(int start, int end, int n, RandomGenerator random) {
+    int length = end - start;
+    int from = 0;
+    if (n > length / 2) {
+      Arrays.fill(cells, start, end, (byte) MINE);
+      n = length - n;
+      from = MINE;
+    }
+    for (int j = length - n; j < length; j++) {
+      int t = random.nextInt(j + 1);
+      cells[start + ((cells[start + t] & MINE) != from ? j : t)] ^= MINE;
+    }
+  }
+
+  /**
+   * Recount the number of adjacent mines of every grid in a range of rows. Only grids within the
+   * range are written, so ranges can be counted concurrently once all mines are planted.
+   *
+   * @param fromRow the first row of the range
+   * @param toRow the row after the last row of the range
+   */
+  void countRows(int fromRow, int toRow) {
+    bitboard = null;
+    for (int i = fromRow, index = fromRow * x; i < toRow; i++) {
+      for (int j = 0; j < x; j++, index++) {
+        int cell = cells[index] & ~N_ADJ_MINE;
+        cells[index] = (byte) (cell | countAdjMines(index, getNeighborMask(i, j)));
+      }
+    }
+  }
+
+  /**
+   * Get the ID the board was generated from, which generates the same board again.
+   *
+   * @return the ID, or <code>null</code> if the board was not generated from one
+   * @see BoardId#generate()
+   */
+  public BoardId getId() {
+    return id;
+  }
+
+  /**
+   * Record the ID the board was generated from.
+   *
+   * @param id the ID
+   */
+  void setId(BoardId id) {
+    this.id = id;
+  }
+
+  /**
+   * Get the number of mines to be planted in the board.
+   *
+   * @return number of mines
+   */
+  public int getNMines() {
+    return nMines;
+  }
+
+  /**
+   * Plant a mine in a grid without one and increment the number of adjacent mines of each of its
+   * neighbors.
+   *
+   * @param index the row-major index of the grid
+   */
+  void plantMine(int index) {
+    bitboard = null;
+    cells[index] |= MINE;
+    for (int m = getNeighborMask(index); m != 0; m &= m - 1) {
+      cells[index + neighborOffsets[Integer.numberOfTrailingZeros(m)]]++;
+    }
+    if (file != null) writeNeighborhood(index);
+  }
+
+  /**
+   * Remove the mine of a grid and decrement the number of adjacent mines of each of its neighbors.
+   *
+   * @param index the row-major index of the grid
+   */
+  private void removeMine(int index) {
+    bitboard = null;
+    cells[index] &= ~MINE;
+    for (int m = getNeighborMask(index); m != 0; m &= m - 1) {
+      cells[index + neighborOffsets[Integer.numberOfTrailingZeros(m)]]--;
+    }
+    if (file != null) writeNeighborhood(index);
+  }
+
+  /**
+   * Write a grid and its neighbors through to {@link #file} after a mine was planted or removed.
+   *
+   * @param index the row-major index of the grid
+   */
+  private void writeNeighborhood(int index) {
+    file.writeCell(index, cells[index]);
+    for (int m = getNeighborMask(index); m != 0; m &= m - 1) {
+      int neighbor = index + neighborOffsets[Integer.numberOfTrailingZeros(m)];
+      file.writeCell(neighbor, cells[neighbor]);
+    }
+  }
+
+  /**
+   * Move the mine of a grid to another grid without a mine. Only the adjacent mine counts around
+   * the two grids are updated.
+   *
+   * @param from the row-major index of the grid containing the mine
+   * @param to the row-major index of the grid without a mine
+   */
+  void moveMine(int from, int to) {
+    removeMine(from);
+    plantMine(to);
+  }
+
+  /**
+   * Move the mine of a grid to a randomly chosen grid without a mine, so that the grid can be
+   * safely checked, for example on the first check of a game. Only the adjacent mine counts around
+   * the two grids are updated.
+   *
+   * @param index the row-major index of the grid
+   * @return <code>true</code> if the grid no longer contains a mine;
+   *         <code>false</code> if every other grid already contains a mine
+   */
+  boolean relocateMine(int index) {
+    if ((cells[index] & MINE) == 0) return true;
+    if (nMines == cells.length) return false;
+
+    int target;
+    do {
+      target = random.nextInt(cells.length);
+    } while ((cells[target] & MINE) != 0);
+    moveMine(index, target);
+    return true;
+  }
+
+  /**
+   * Print the game board to the user. Checked coordinates will show number of adjacent mines.
+   * Unchecked coordinates will show as a empty space. A coordinate marked by the user as a mine
+   * will show as '*', and a coordinate marked as question mark (user is uncertain of the identity)
+   * shows as '?'.
+   *
+   * @param showAnswer if game is over, the board printed will show all grids that contain mines
+   * @see BoardRenderer#render(boolean)
+   */
+  public void printBoard(boolean showAnswer) {
+    if (renderer == null) renderer = new BoardRenderer(this, System.out);
+    renderer.render(showAnswer);
+  }
+
+  /**
+   * Validate if the given coordinate is within the game board. The given coordinate's y
+   * and x indexes must be greater or equal to 0, and smaller than the width {@link #x} and height
+   * {@link #y} of the game board.
+   *
+   * @param coord the coordinate to validate
+   * @return <code>true</code> if the given coordinate is valid; 
+   *         <code>false</code> if the given
+   *         coordinate is invalid
+   */
+  public boolean validateCoord(int[] coord) {
+    return validateCoord(coord[0], coord[1]);
+  }
+
+  /**
+   * Validate if the given y and x indexes are within the game board.
+   *
+   * @param y the y index to validate
+   * @param x the x index to validate
+   * @return <code>true</code> if the given coordinate is valid;
+   *         <code>false</code> if the given coordinate is invalid
+   */
+  public boolean validateCoord(int y, int x) {
+    return (y >= 0 && y < this.y) && (x >= 0 && x < this.x);
+  }
+
+  public static void main(String[] args) {
+    Board board = new Board(30, 20, 100);
+    board.initBoard();
+    board.printBoard(true);
+  }
+}
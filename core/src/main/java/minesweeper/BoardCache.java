@@ -0,0 +1,131 @@
+package minesweeper;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BoardCache keeps the boards recently generated from a {@link BoardId}, so that replays, shared
+ * challenges and fixtures asking for the same ID again skip planting the mines. Only the packed
+ * state of the grids is kept, as it was right after generation; every board returned is a fresh
+ * copy, so games played on it never change the cache. The cache is bounded by the bytes of the
+ * boards it keeps, and the least recently used boards are evicted first, so a few large boards
+ * and many small ones fit the same budget.
+ *
+ * <p>Taking a board that is kept is a hit; any other take is a miss and generates the board on the
+ * calling thread. Hits, misses and evictions are counted, like those of a {@link BoardPool}.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardCache {
+  /** Largest number of bytes of the boards kept */
+  private final long maxBytes;
+  /** The packed grids of the boards by ID, from the least to the most recently used */
+  private final LinkedHashMap<BoardId, byte[]> boards = new LinkedHashMap<>(16, 0.75f, true);
+  /** Number of bytes of the boards kept */
+  private long bytes;
+  /** Number of boards copied from the cache */
+  private final LongAdder hits = new LongAdder();
+  /** Number of boards generated when taken */
+  private final LongAdder misses = new LongAdder();
+  /** Number of boards evicted */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Initialize an empty cache.
+   *
+   * @param maxBytes the number of bytes of the boards kept before the least recently used ones
+   *     are evicted, one byte per grid
+   */
+  public BoardCache(long maxBytes) {
+    if (maxBytes <= 0) throw new IllegalArgumentException("Cache capacity must be positive");
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Take the board of an ID written by {@link BoardId#toString()}.
+   *
+   * @param id the ID of the board
+   * @return the board, ready to be played
+   * @throws IllegalArgumentException if the ID is malformed
+   */
+  public Board take(String id) {
+    return take(BoardId.parse(id));
+  }
+
+  /**
+   * Take the board of an ID, copied from the cache if it is kept, or generated now and kept
+   * otherwise. A board larger than the whole cache is generated without being kept.
+   *
+   * @param id the ID of the board
+   * @return the board, ready to be played
+   */
+  public Board take(BoardId id) {
+    byte[] cells;
+    synchronized (boards) {
+      cells = boards.get(id);
+    }
+    if (cells != null) {
+      hits.increment();
+      return id.restore(cells);
+    }
+
+    misses.increment();
+    Board board = id.generate();
+    if (board.size() > maxBytes) return board;
+    cells = new byte[board.size()];
+    board.saveCells(ByteBuffer.wrap(cells));
+    synchronized (boards) {
+      byte[] previous = boards.put(id, cells);
+      bytes += cells.length - (previous == null ? 0 : previous.length);
+      Iterator<byte[]> eldest = boards.values().iterator();
+      while (bytes > maxBytes) {
+        bytes -= eldest.next().length;
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+    return board;
+  }
+
+  /**
+   * Get the number of boards copied from the cache.
+   *
+   * @return number of hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the number of boards generated when taken, because they were not kept.
+   *
+   * @return number of misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the number of boards evicted to make room for others.
+   *
+   * @return number of evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Get the number of boards currently kept.
+   *
+   * @return number of boards
+   */
+  public int getBoards() {
+    synchronized (boards) {
+      return boards.size();
+    }
+  }
+}
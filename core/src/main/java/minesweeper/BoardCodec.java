@@ -0,0 +1,300 @@
+package minesweeper;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * BoardCodec encodes what a player sees of a {@link Board} into compact binary messages for remote
+ * clients. Every grid is a 4-bit code: its number of adjacent mines from 0 to 8 once checked, or
+ * {@link #HIDDEN}, {@link #FLAG}, {@link #QUESTION}, and {@link #MINE} for the mines shown when the
+ * game is over. Codes are packed two per byte, high nibble first. Two messages are encoded:
+ *
+ * <ul>
+ *   <li>{@link #FULL}: the height and width of the board, then the code of every grid in
+ *       row-major order. A run of at least {@link #MIN_RUN} hidden grids is replaced by {@link
+ *       #RUN} followed by the length of the run minus {@link #MIN_RUN} in nibbles of three bits,
+ *       lowest first, the fourth bit set on every nibble but the last, so an untouched board of
+ *       any size takes a few bytes.
+ *   <li>{@link #DELTA}: the number of grids changed since the previous message, the gap before
+ *       each of them in increasing index order, then their codes. Gaps count the unchanged grids
+ *       in between, so the grids of a cascade mostly take one byte and a nibble each.
+ * </ul>
+ *
+ * <p>Numbers outside the nibbles are unsigned LEB128 varints. Messages are written into one
+ * buffer reused from message to message, without intermediate strings; a message is valid until
+ * the next one is encoded.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardCodec {
+  /** Type of a message holding every grid of the board */
+  public static final byte FULL = 1;
+  /** Type of a message holding the grids changed since the previous message */
+  public static final byte DELTA = 2;
+  /** Code of a grid not checked yet */
+  public static final int HIDDEN = 9;
+  /** Code of a grid marked as a mine field */
+  public static final int FLAG = 10;
+  /** Code of a grid marked as a question field */
+  public static final int QUESTION = 11;
+  /** Code of a grid containing a mine, shown when the game is over */
+  public static final int MINE = 12;
+  /** Code starting a run of hidden grids */
+  public static final int RUN = 15;
+  /** Shortest run of hidden grids encoded as a run */
+  public static final int MIN_RUN = 3;
+  /** Codes of every packed cell while the game goes on */
+  private static final byte[] PLAYING_CODES = codes(false);
+  /** Codes of every packed cell when the game is over */
+  private static final byte[] ANSWER_CODES = codes(true);
+
+  /** The board encoded */
+  private final Board board;
+  /** The buffer messages are written to */
+  private ByteBuffer buffer = ByteBuffer.allocate(256);
+  /** Nibble waiting for its pair in the low half of a byte, or -1 */
+  private int pending = -1;
+
+  /**
+   * Initialize an encoder for the given board.
+   *
+   * @param board the board to encode
+   */
+  public BoardCodec(Board board) {
+    this.board = board;
+  }
+
+  /**
+   * Encode every grid of the board. Changes recorded before are included, so they are also
+   * discarded, and the next {@link #encodeDelta(boolean)} starts from this message.
+   *
+   * @param showAnswer if the game is over, so that mines are shown
+   * @return the message, from the position to the limit of the buffer
+   */
+  public ByteBuffer encodeFull(boolean showAnswer) {
+    board.takeChangedGrids();
+    int size = board.size();
+    start(FULL, 20 + (size >>> 1));
+    putVarint(board.getHeight());
+    putVarint(board.getWidth());
+
+    byte[] codes = showAnswer ? ANSWER_CODES : PLAYING_CODES;
+    int i = 0;
+    while (i < size) {
+      int code = codes[board.getCell(i) & 0xFF];
+      if (code != HIDDEN) {
+        putNibble(code);
+        i++;
+        continue;
+      }
+      int end = i + 1;
+      while (end < size && codes[board.getCell(end) & 0xFF] == HIDDEN) end++;
+      if (end - i >= MIN_RUN) {
+        putNibble(RUN);
+        for (int run = end - i - MIN_RUN; ; run >>>= 3) {
+          if (run < 8) {
+            putNibble(run);
+            break;
+          }
+          putNibble(8 | (run & 7));
+        }
+      } else {
+        for (; i < end; i++) putNibble(HIDDEN);
+      }
+      i = end;
+    }
+    return finish();
+  }
+
+  /**
+   * Encode the grids changed since the previous message, such as the cascade of the last check.
+   *
+   * @param showAnswer if the game is over, so that mines are shown
+   * @return the message, from the position to the limit of the buffer
+   * @see Board#takeChangedGrids()
+   */
+  public ByteBuffer encodeDelta(boolean showAnswer) {
+    int[] grids = board.takeChangedGrids();
+    start(DELTA, 8 + grids.length * 6);
+    putVarint(grids.length);
+    int previous = -1;
+    for (int grid : grids) {
+      putVarint(grid - previous - 1);
+      previous = grid;
+    }
+    byte[] codes = showAnswer ? ANSWER_CODES : PLAYING_CODES;
+    for (int grid : grids) putNibble(codes[board.getCell(grid) & 0xFF]);
+    return finish();
+  }
+
+  /**
+   * Apply a message to the codes of a board as seen by a client.
+   *
+   * @param message the message, from its position to its limit
+   * @param codes the code of every grid, in row-major order, updated in place
+   * @return number of grids written
+   * @throws IllegalArgumentException if the message is malformed or does not fit the codes
+   */
+  public static int decode(ByteBuffer message, byte[] codes) {
+    try {
+      byte type = message.get();
+      if (type == FULL) {
+        long size = (long) getVarint(message) * getVarint(message);
+        if (size != codes.length) throw new IllegalArgumentException("Board size mismatch");
+        Nibbles nibbles = new Nibbles(message);
+        int i = 0;
+        while (i < size) {
+          int code = nibbles.next();
+          if (code != RUN) {
+            codes[i++] = (byte) code;
+            continue;
+          }
+          int run = 0;
+          int nibble;
+          int shift = 0;
+          do {
+            nibble = nibbles.next();
+            run |= (nibble & 7) << shift;
+            shift += 3;
+          } while ((nibble & 8) != 0);
+          run += MIN_RUN;
+          if (run > size - i) throw new IllegalArgumentException("Run past the board");
+          for (int end = i + run; i < end; i++) codes[i] = HIDDEN;
+        }
+        return i;
+      }
+      if (type == DELTA) {
+        int count = getVarint(message);
+        int[] grids = new int[count];
+        int grid = -1;
+        for (int i = 0; i < count; i++) {
+          grid += getVarint(message) + 1;
+          if (grid >= codes.length) throw new IllegalArgumentException("Grid past the board");
+          grids[i] = grid;
+        }
+        Nibbles nibbles = new Nibbles(message);
+        for (int i = 0; i < count; i++) codes[grids[i]] = (byte) nibbles.next();
+        return count;
+      }
+      throw new IllegalArgumentException("Unknown message type: " + type);
+    } catch (BufferUnderflowException bue) {
+      throw new IllegalArgumentException("Truncated message", bue);
+    }
+  }
+
+  /**
+   * Start a message in the buffer, growing the buffer if it may not hold the message.
+   *
+   * @param type the type of the message
+   * @param capacity the largest size of the message
+   */
+  private void start(byte type, int capacity) {
+    if (buffer.capacity() < capacity) {
+      buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+    }
+    buffer.clear();
+    buffer.put(type);
+    pending = -1;
+  }
+
+  /**
+   * End a message, writing its last nibble with a zero nibble after it if it has no pair.
+   *
+   * @return the message, from the position to the limit of the buffer
+   */
+  private ByteBuffer finish() {
+    if (pending >= 0) buffer.put((byte) (pending << 4));
+    pending = -1;
+    return buffer.flip();
+  }
+
+  /**
+   * Write a nibble, high half of a byte first.
+   *
+   * @param nibble the nibble
+   */
+  private void putNibble(int nibble) {
+    if (pending < 0) {
+      pending = nibble;
+    } else {
+      buffer.put((byte) ((pending << 4) | nibble));
+      pending = -1;
+    }
+  }
+
+  /**
+   * Write an unsigned LEB128 varint.
+   *
+   * @param value the non-negative value
+   */
+  private void putVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Read an unsigned LEB128 varint.
+   *
+   * @param message the message
+   * @return the value
+   */
+  private static int getVarint(ByteBuffer message) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = message.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+    throw new IllegalArgumentException("Varint too long");
+  }
+
+  /**
+   * Build the table of the code of every packed cell.
+   *
+   * @param showAnswer if the codes should show all grids that contain mines
+   * @return the code of each of the 256 packed cells
+   */
+  private static byte[] codes(boolean showAnswer) {
+    byte[] codes = new byte[256];
+    for (int cell = 0; cell < 256; cell++) {
+      int code;
+      if ((cell & Board.MARKED_MINE) != 0) {
+        code = FLAG;
+      } else if ((cell & Board.MARKED_QUESTION) != 0) {
+        code = QUESTION;
+      } else if ((cell & Board.CHECKED) != 0) {
+        code = cell & Board.N_ADJ_MINE;
+      } else {
+        code = showAnswer && (cell & Board.MINE) != 0 ? MINE : HIDDEN;
+      }
+      codes[cell] = (byte) code;
+    }
+    return codes;
+  }
+
+  /** Reads the nibbles of a message, high half of a byte first. */
+  private static class Nibbles {
+    private final ByteBuffer message;
+    private int low = -1;
+
+    private Nibbles(ByteBuffer message) {
+      this.message = message;
+    }
+
+    private int next() {
+      if (low >= 0) {
+        int nibble = low;
+        low = -1;
+        return nibble;
+      }
+      int b = message.get() & 0xFF;
+      low = b & 0x0F;
+      return b >>> 4;
+    }
+  }
+}
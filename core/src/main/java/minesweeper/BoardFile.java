@@ -0,0 +1,307 @@
+package minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BoardFile keeps a game saved in a memory-mapped file, so that it survives a restart of the
+ * process. The file starts with a header of eight integers: a magic number, the format version,
+ * the height, width and number of mines of the board, the number of grids remaining to be checked,
+ * the number of mines left as marked by the user, and the flags of the game. The packed state of
+ * every grid follows, one byte per grid in the layout of {@link Board}.
+ *
+ * <p>While a file is open, every change of the game is written through to the mapping, so the file
+ * is always up to date without ever being written as a whole; {@link #force()} makes it durable.
+ * Reopening a saved game reads the header and copies the grids in one bulk transfer, without any
+ * parsing, so its cost is bounded by the page faults of the mapping.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardFile implements Closeable {
+  /** Magic number identifying a saved game, "MSWP" */
+  private static final int MAGIC = 0x4D535750;
+  /** Version of the file format */
+  private static final int VERSION = 1;
+  /** Offset of the height of the board */
+  private static final int HEIGHT = 8;
+  /** Offset of the width of the board */
+  private static final int WIDTH = 12;
+  /** Offset of the number of mines of the board */
+  private static final int N_MINES = 16;
+  /** Offset of the number of grids remaining to be checked */
+  private static final int GRID_TO_CHECK = 20;
+  /** Offset of the number of mines left as marked by the user */
+  private static final int N_LEFT_MINE = 24;
+  /** Offset of the flags of the game */
+  private static final int FLAGS = 28;
+  /** Size of the header, after which the grids are stored */
+  private static final int HEADER = 32;
+  /** Flag set when the game is over */
+  private static final int GAME_OVER = 0x1;
+  /** Flag set when no grid has been checked yet */
+  private static final int FIRST_CHECK = 0x2;
+
+  /** The channel of the file */
+  private final FileChannel channel;
+  /** The mapping of the whole file */
+  private final MappedByteBuffer buffer;
+  /** The game held by the file */
+  private final GameEngine engine;
+
+  /**
+   * Initialize a file holding a game and start writing the changes of the game through to it.
+   *
+   * @param channel the channel of the file
+   * @param buffer the mapping of the whole file
+   * @param engine the game held by the file
+   */
+  private BoardFile(FileChannel channel, MappedByteBuffer buffer, GameEngine engine) {
+    this.channel = channel;
+    this.buffer = buffer;
+    this.engine = engine;
+    engine.attach(this);
+  }
+
+  /**
+   * Save a game to a file, replacing any previous content, and keep the file up to date with every
+   * later change of the game until the file is closed.
+   *
+   * @param path the path of the file
+   * @param engine the game to save
+   * @return the open file
+   * @throws IOException On output error
+   */
+  public static BoardFile save(Path path, GameEngine engine) throws IOException {
+    FileChannel channel = create(path);
+    try {
+      return new BoardFile(channel, write(channel, engine), engine);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Save the current state of a game to a file, replacing any previous content, without keeping
+   * the file up to date with later changes. The file is durable when the method returns.
+   *
+   * @param path the path of the file
+   * @param engine the game to save
+   * @throws IOException On output error
+   * @see #load(Path)
+   */
+  public static void snapshot(Path path, GameEngine engine) throws IOException {
+    try (FileChannel channel = create(path)) {
+      write(channel, engine).force();
+    }
+  }
+
+  /**
+   * Reopen a game saved by {@link #save(Path, GameEngine)} and keep the file up to date with every
+   * later change of the game until the file is closed.
+   *
+   * @param path the path of the file
+   * @return the open file, whose game is available from {@link #getEngine()}
+   * @throws IOException On input error, or if the file does not hold a saved game
+   */
+  public static BoardFile open(Path path) throws IOException {
+    FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, path);
+      return new BoardFile(channel, buffer, read(buffer, path));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Load a game saved to a file, without keeping the file up to date with later changes.
+   *
+   * @param path the path of the file
+   * @return the saved game
+   * @throws IOException On input error, or if the file does not hold a saved game
+   * @see #snapshot(Path, GameEngine)
+   */
+  public static GameEngine load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return read(map(channel, FileChannel.MapMode.READ_ONLY, path), path);
+    }
+  }
+
+  /**
+   * Create a file, or empty it if it exists, for both reading and writing.
+   *
+   * @param path the path of the file
+   * @return the channel of the file
+   * @throws IOException On output error
+   */
+  private static FileChannel create(Path path) throws IOException {
+    return FileChannel.open(
+        path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Map a new file and write the header and every grid of a game to it.
+   *
+   * @param channel the channel of the empty file
+   * @param engine the game to write
+   * @return the mapping of the whole file
+   * @throws IOException On output error
+   */
+  private static MappedByteBuffer write(FileChannel channel, GameEngine engine)
+      throws IOException {
+    Board board = engine.getBoard();
+    MappedByteBuffer buffer =
+        channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) board.size());
+    buffer.putInt(0, MAGIC).putInt(4, VERSION);
+    buffer.putInt(HEIGHT, board.getHeight()).putInt(WIDTH, board.getWidth());
+    buffer.putInt(N_MINES, board.getNMines());
+    buffer.putInt(GRID_TO_CHECK, board.getGridToCheck());
+    putGame(buffer, engine.getNLeftMine(), engine.isGameOver(), engine.isFirstCheck());
+    board.saveCells(buffer.position(HEADER));
+    return buffer;
+  }
+
+  /**
+   * Map a whole file and check that it holds a saved game.
+   *
+   * @param channel the channel of the file
+   * @param mode the mode of the mapping
+   * @param path the path of the file, for error messages
+   * @return the mapping of the whole file
+   * @throws IOException On input error, or if the file does not hold a saved game
+   */
+  private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, Path path)
+      throws IOException {
+    long size = channel.size();
+    if (size < HEADER) throw new IOException("Not a saved game: " + path);
+    MappedByteBuffer buffer = channel.map(mode, 0, size);
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Not a saved game: " + path);
+    }
+    int height = buffer.getInt(HEIGHT);
+    int width = buffer.getInt(WIDTH);
+    if (height <= 0 || width <= 0 || size != HEADER + (long) height * width) {
+      throw new IOException("Corrupted saved game: " + path);
+    }
+    return buffer;
+  }
+
+  /**
+   * Restore the game held by a mapped file, copying its grids in one bulk transfer.
+   *
+   * @param buffer the mapping of the whole file
+   * @param path the path of the file, for error messages
+   * @return the saved game
+   * @throws IOException if the file holds an invalid game
+   */
+  private static GameEngine read(MappedByteBuffer buffer, Path path) throws IOException {
+    Board board;
+    try {
+      board = new Board(buffer.getInt(HEIGHT), buffer.getInt(WIDTH), buffer.getInt(N_MINES));
+    } catch (IllegalArgumentException iae) {
+      throw new IOException("Corrupted saved game: " + path, iae);
+    }
+    board.restoreCells(buffer.position(HEADER), buffer.getInt(GRID_TO_CHECK));
+    int flags = buffer.getInt(FLAGS);
+    return new GameEngine(
+        board, buffer.getInt(N_LEFT_MINE), (flags & GAME_OVER) != 0, (flags & FIRST_CHECK) != 0);
+  }
+
+  /**
+   * Write the state of a game to the header of a mapped file.
+   *
+   * @param buffer the mapping of the whole file
+   * @param nLeftMine number of remaining mines as marked by the user
+   * @param gameOver determines if the game is over
+   * @param firstCheck determines if no grid has been checked yet
+   */
+  private static void putGame(
+      MappedByteBuffer buffer, int nLeftMine, boolean gameOver, boolean firstCheck) {
+    buffer.putInt(N_LEFT_MINE, nLeftMine);
+    buffer.putInt(FLAGS, (gameOver ? GAME_OVER : 0) | (firstCheck ? FIRST_CHECK : 0));
+  }
+
+  /**
+   * Get the game held by the file.
+   *
+   * @return the game
+   */
+  public GameEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Write the packed state of a grid through to the file.
+   *
+   * @param index the row-major index of the grid
+   * @param state the packed state of the grid
+   */
+  void writeCell(int index, int state) {
+    buffer.put(HEADER + index, (byte) state);
+  }
+
+  /**
+   * Write the packed state of every grid and the number of grids remaining to be checked through
+   * to the file, after a change of the whole board.
+   *
+   * @param board the board
+   */
+  void writeCells(Board board) {
+    board.saveCells(buffer.position(HEADER));
+    writeGridToCheck(board.getGridToCheck());
+  }
+
+  /**
+   * Write the number of grids remaining to be checked through to the file.
+   *
+   * @param gridToCheck number of remaining grids to check
+   */
+  void writeGridToCheck(int gridToCheck) {
+    buffer.putInt(GRID_TO_CHECK, gridToCheck);
+  }
+
+  /**
+   * Write the state of the game through to the file.
+   *
+   * @param nLeftMine number of remaining mines as marked by the user
+   * @param gameOver determines if the game is over
+   * @param firstCheck determines if no grid has been checked yet
+   */
+  void writeGame(int nLeftMine, boolean gameOver, boolean firstCheck) {
+    putGame(buffer, nLeftMine, gameOver, firstCheck);
+  }
+
+  /**
+   * Write the changes of the game made so far to the storage device, so that they survive a crash
+   * of the system and not only of the process.
+   */
+  public void force() {
+    buffer.force();
+  }
+
+  /**
+   * Stop writing the changes of the game through to the file, make the changes made so far durable
+   * and close the file. The game itself can still be played.
+   *
+   * @throws IOException On output error
+   */
+  @Override
+  public void close() throws IOException {
+    engine.attach(null);
+    force();
+    channel.close();
+  }
+}
@@ -0,0 +1,195 @@
+package minesweeper;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * BoardId names a board by its height, width, number of mines and seed, which together define
+ * where every mine is. The mines are planted by {@link Board#initBoard()} with a {@link Random}
+ * seeded with the seed. The algorithm of {@link Random} is specified by the platform, so the same
+ * ID gives the same board on every JVM, and a board can be replayed, shared or used as a fixture
+ * by its ID alone. The mines moved away from the first checked grid are drawn from a second
+ * {@link Random} derived from the seed, so the whole game is reproducible.
+ *
+ * <p>The ID is written as the height, width and number of mines as unsigned LEB128 varints,
+ * followed by the 8 bytes of the seed, encoded in URL-safe Base64 without padding. An expert
+ * board takes 15 characters.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardId {
+  /** Mixed into the seed to derive the seed of the mines moved away from the first check */
+  private static final long RELOCATION_SEED = 0x9E3779B97F4A7C15L;
+
+  private final int height;
+  private final int width;
+  private final int nMines;
+  private final long seed;
+
+  /**
+   * Initialize the ID of a board.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   * @param seed the seed defining where the mines are
+   * @throws IllegalArgumentException if the board has more than {@link Board#MAX_SIZE} grids, or if
+   *     the number of mines does not fit in the board
+   */
+  public BoardId(int height, int width, int nMines, long seed) {
+    if (height <= 0 || width <= 0 || (long) height * width > Board.MAX_SIZE) {
+      throw new IllegalArgumentException("Invalid board size: " + height + "x" + width);
+    }
+    if (nMines < 0 || nMines > (long) height * width) {
+      throw new IllegalArgumentException("Invalid number of mines: " + nMines);
+    }
+    this.height = height;
+    this.width = width;
+    this.nMines = nMines;
+    this.seed = seed;
+  }
+
+  /**
+   * Read an ID written by {@link #toString()}.
+   *
+   * @param id the ID
+   * @return the ID
+   * @throws IllegalArgumentException if the ID is malformed
+   */
+  public static BoardId parse(String id) {
+    ByteBuffer bytes = ByteBuffer.wrap(Base64.getUrlDecoder().decode(id));
+    int height = getVarint(bytes);
+    int width = getVarint(bytes);
+    int nMines = getVarint(bytes);
+    if (bytes.remaining() != Long.BYTES) throw new IllegalArgumentException("Invalid board ID");
+    return new BoardId(height, width, nMines, bytes.getLong());
+  }
+
+  /**
+   * Get the height of the board.
+   *
+   * @return height of the board
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Get the width of the board.
+   *
+   * @return width of the board
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the number of mines of the board.
+   *
+   * @return number of mines
+   */
+  public int getNMines() {
+    return nMines;
+  }
+
+  /**
+   * Get the seed defining where the mines are.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Generate the board named by this ID, ready to be played.
+   *
+   * @return the board
+   */
+  public Board generate() {
+    Random random = new Random(seed);
+    Board board = new Board(height, width, nMines, random);
+    board.initBoard();
+    random.setSeed(seed ^ RELOCATION_SEED);
+    board.setId(this);
+    return board;
+  }
+
+  /**
+   * Rebuild the board named by this ID from the packed state of its grids, as saved by {@link
+   * Board#saveCells(ByteBuffer)} from a board just generated, without planting the mines again.
+   * The board plays exactly like one returned by {@link #generate()}.
+   *
+   * @param cells the packed state of every grid, which is copied
+   * @return the board
+   */
+  Board restore(byte[] cells) {
+    Board board = new Board(height, width, nMines, new Random(seed ^ RELOCATION_SEED));
+    board.restoreCells(ByteBuffer.wrap(cells), cells.length - nMines);
+    board.setId(this);
+    return board;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof BoardId)) return false;
+    BoardId id = (BoardId) other;
+    return height == id.height && width == id.width && nMines == id.nMines && seed == id.seed;
+  }
+
+  @Override
+  public int hashCode() {
+    return ((height * 31 + width) * 31 + nMines) * 31 + Long.hashCode(seed);
+  }
+
+  /**
+   * Write the ID in its compact form.
+   *
+   * @return the ID, as read by {@link #parse(String)}
+   */
+  @Override
+  public String toString() {
+    ByteBuffer bytes = ByteBuffer.allocate(3 * 5 + Long.BYTES);
+    putVarint(bytes, height);
+    putVarint(bytes, width);
+    putVarint(bytes, nMines);
+    bytes.putLong(seed).flip();
+    byte[] id = Arrays.copyOf(bytes.array(), bytes.limit());
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+  }
+
+  /**
+   * Write an unsigned LEB128 varint.
+   *
+   * @param bytes the buffer to write to
+   * @param value the non-negative value
+   */
+  private static void putVarint(ByteBuffer bytes, int value) {
+    while ((value & ~0x7F) != 0) {
+      bytes.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    bytes.put((byte) value);
+  }
+
+  /**
+   * Read an unsigned LEB128 varint.
+   *
+   * @param bytes the buffer to read from
+   * @return the value
+   * @throws IllegalArgumentException if the varint is truncated or too long
+   */
+  private static int getVarint(ByteBuffer bytes) {
+    int value = 0;
+    for (int shift = 0; shift < 32 && bytes.hasRemaining(); shift += 7) {
+      byte b = bytes.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+    throw new IllegalArgumentException("Invalid board ID");
+  }
+}
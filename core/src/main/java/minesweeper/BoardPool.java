@@ -0,0 +1,301 @@
+package minesweeper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * BoardPool keeps boards generated ahead of time by background threads, so that starting a game
+ * of a common configuration only takes a board from a queue. Boards are pooled by configuration:
+ * height, width and number of mines. Every configuration asked for keeps a bounded queue of ready
+ * boards, which is refilled in the background each time a board is taken. Only a bounded number of
+ * configurations are kept; when a new one is needed, the least recently used one is evicted with
+ * its boards.
+ *
+ * <p>Taking a board from a configuration with a ready board is a hit; any other take is a miss
+ * and generates the board on the calling thread. Hits, misses and evictions are counted, so that
+ * the capacity can be tuned to the configurations actually played. Refilling threads are daemons
+ * and stop after {@link #IDLE_SECONDS} without work, so an idle pool costs no threads.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardPool implements AutoCloseable {
+  /** Seconds after which an idle refilling thread stops */
+  static final long IDLE_SECONDS = 30;
+
+  /** Generates the boards of a pool. */
+  public interface Source {
+    /**
+     * Generate a board, ready to be played.
+     *
+     * @param height the height of the board
+     * @param width the width of the board
+     * @param nMines the number of mines of the board
+     * @return the board
+     * @throws IllegalArgumentException if the configuration is invalid
+     */
+    Board generate(int height, int width, int nMines);
+  }
+
+  /** Source of boards whose mines are placed at random by {@link Board#initBoard()} */
+  public static final Source RANDOM =
+      (height, width, nMines) -> {
+        Board board = new Board(height, width, nMines);
+        board.initBoard();
+        return board;
+      };
+
+  /**
+   * Source of boards generated from a {@link BoardId} with a random seed, so that each board can
+   * be played again from {@link Board#getId()}
+   */
+  public static final Source SEEDED =
+      (height, width, nMines) ->
+          new BoardId(height, width, nMines, RandomGenerator.getDefault().nextLong()).generate();
+
+  /** The source of the boards */
+  private final Source source;
+  /** Number of boards kept ready for each configuration */
+  private final int boardsPerConfiguration;
+  /** Threads refilling the configurations */
+  private final ExecutorService refillers;
+  /** The configurations by key, from the least to the most recently used */
+  private final LinkedHashMap<Key, Configuration> configurations;
+  /** Number of boards taken ready */
+  private final LongAdder hits = new LongAdder();
+  /** Number of boards generated when taken */
+  private final LongAdder misses = new LongAdder();
+  /** Number of configurations evicted */
+  private final LongAdder evictions = new LongAdder();
+
+  /** The height, width and number of mines of a configuration, comparable by value. */
+  private static final class Key {
+    private final int height;
+    private final int width;
+    private final int nMines;
+
+    private Key(int height, int width, int nMines) {
+      this.height = height;
+      this.width = width;
+      this.nMines = nMines;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) return false;
+      Key key = (Key) other;
+      return height == key.height && width == key.width && nMines == key.nMines;
+    }
+
+    @Override
+    public int hashCode() {
+      return (height * 31 + width) * 31 + nMines;
+    }
+  }
+
+  /** The boards of one configuration. */
+  private static class Configuration {
+    private final int height;
+    private final int width;
+    private final int nMines;
+    /** The boards ready to be taken */
+    private final BlockingQueue<Board> boards;
+    /** Set while the configuration is being refilled */
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    /** Set once the configuration is evicted, which stops its refill */
+    private volatile boolean evicted;
+
+    private Configuration(int height, int width, int nMines, int capacity) {
+      this.height = height;
+      this.width = width;
+      this.nMines = nMines;
+      boards = new ArrayBlockingQueue<>(capacity);
+    }
+  }
+
+  /**
+   * Initialize an empty pool.
+   *
+   * @param source the source of the boards
+   * @param maxConfigurations the number of configurations kept before the least recently used one
+   *     is evicted
+   * @param boardsPerConfiguration the number of boards kept ready for each configuration
+   * @param threads the number of threads refilling the configurations
+   */
+  public BoardPool(Source source, int maxConfigurations, int boardsPerConfiguration, int threads) {
+    if (maxConfigurations <= 0 || boardsPerConfiguration <= 0 || threads <= 0) {
+      throw new IllegalArgumentException("Pool capacities must be positive");
+    }
+    this.source = source;
+    this.boardsPerConfiguration = boardsPerConfiguration;
+    configurations =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Configuration> eldest) {
+            if (size() <= maxConfigurations) return false;
+            eldest.getValue().evicted = true;
+            evictions.increment();
+            return true;
+          }
+        };
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            IDLE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            task -> {
+              Thread thread = new Thread(task, "board-pool-refiller");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    refillers = executor;
+  }
+
+  /**
+   * Start generating boards of a configuration ahead of time, so that the next boards taken of it
+   * are hits. A configuration the source cannot generate stays empty until it is evicted.
+   *
+   * @param height the height of the boards
+   * @param width the width of the boards
+   * @param nMines the number of mines of the boards
+   */
+  public void prefill(int height, int width, int nMines) {
+    refill(configuration(height, width, nMines, true));
+  }
+
+  /**
+   * Take a board of a configuration, ready if one was generated ahead of time, or generated now
+   * otherwise. Either way, the configuration is refilled in the background.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   * @return the board
+   * @throws IllegalArgumentException if the configuration is invalid
+   */
+  public Board take(int height, int width, int nMines) {
+    Configuration configuration = configuration(height, width, nMines, false);
+    Board board = configuration == null ? null : configuration.boards.poll();
+    if (board != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+      board = source.generate(height, width, nMines);
+      if (configuration == null) configuration = configuration(height, width, nMines, true);
+    }
+    refill(configuration);
+    return board;
+  }
+
+  /**
+   * Get the number of boards taken ready.
+   *
+   * @return number of hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the number of boards generated when taken, because none was ready.
+   *
+   * @return number of misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the number of configurations evicted to make room for others.
+   *
+   * @return number of evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Get the number of configurations currently kept.
+   *
+   * @return number of configurations
+   */
+  public int getConfigurations() {
+    synchronized (configurations) {
+      return configurations.size();
+    }
+  }
+
+  /** Stop refilling the configurations. Boards already taken are not affected. */
+  @Override
+  public void close() {
+    refillers.shutdownNow();
+  }
+
+  /**
+   * Look up a configuration and mark it as the most recently used.
+   *
+   * @param height the height of the boards
+   * @param width the width of the boards
+   * @param nMines the number of mines of the boards
+   * @param create <code>true</code> to create the configuration if it is not kept
+   * @return the configuration, or <code>null</code> if it is not kept and not created
+   */
+  private Configuration configuration(int height, int width, int nMines, boolean create) {
+    Key key = new Key(height, width, nMines);
+    synchronized (configurations) {
+      Configuration configuration = configurations.get(key);
+      if (configuration == null && create) {
+        configuration = new Configuration(height, width, nMines, boardsPerConfiguration);
+        configurations.put(key, configuration);
+      }
+      return configuration;
+    }
+  }
+
+  /**
+   * Start refilling a configuration in the background, unless it is evicted, full or already being
+   * refilled. A configuration the source fails to generate is never refilled again.
+   *
+   * @param configuration the configuration
+   */
+  private void refill(Configuration configuration) {
+    if (configuration.evicted
+        || configuration.boards.remainingCapacity() == 0
+        || !configuration.refilling.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refillers.execute(
+          () -> {
+            try {
+              while (!configuration.evicted && configuration.boards.remainingCapacity() > 0) {
+                configuration.boards.offer(
+                    source.generate(
+                        configuration.height, configuration.width, configuration.nMines));
+              }
+            } catch (RuntimeException e) {
+              return;
+            }
+            configuration.refilling.set(false);
+            // A board taken after the last check above found the refill still running.
+            refill(configuration);
+          });
+    } catch (RejectedExecutionException ree) {
+      // The pool is closed: takes generate their own boards from now on.
+    }
+  }
+}
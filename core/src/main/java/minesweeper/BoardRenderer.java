@@ -0,0 +1,238 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BoardRenderer draws a {@link Board} as text, in the same layout as {@link
+ * Board#printBoard(boolean)}. Every grid is looked up in a table of pre-encoded three byte glyphs
+ * indexed by its packed state and copied into one byte buffer that is reused from frame to frame,
+ * so no strings are built. Each frame reaches the output stream in a single write.
+ *
+ * <p>In diff mode, only the rows that differ from the previous frame are written, each with its row
+ * number, so a client that keeps the last frame on screen can patch it in place. The buffers diff
+ * mode needs are allocated by its first frame, so a renderer drawing whole frames only holds one
+ * frame.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardRenderer {
+  /** Number of bytes of a glyph */
+  private static final int GLYPH = 3;
+  /** Glyphs of every packed state while the game goes on, three bytes per state */
+  private static final byte[] PLAYING_GLYPHS = glyphs(false);
+  /** Glyphs of every packed state once the game is over, showing every mine */
+  private static final byte[] ANSWER_GLYPHS = glyphs(true);
+
+  /** The board to render */
+  private final Board board;
+  /** The stream receiving the frames */
+  private final OutputStream out;
+  /** The column numbers printed above the board */
+  private final byte[] header;
+  /** Offset of each row in a frame, with one extra entry marking the end of the frame */
+  private final int[] rowOffsets;
+  /** The frame being rendered */
+  private byte[] frame;
+  /** The previously rendered frame, compared against in diff mode, or <code>null</code> */
+  private byte[] previous;
+  /** The changed rows written in diff mode, or <code>null</code> */
+  private byte[] delta;
+
+  /**
+   * Initialize a renderer of the given board writing to the given stream.
+   *
+   * @param board the board to render
+   * @param out the stream receiving the frames
+   */
+  public BoardRenderer(Board board, OutputStream out) {
+    this.board = board;
+    this.out = out;
+    header = header(board.getWidth());
+
+    int height = board.getHeight();
+    int rowLength = board.getWidth() * GLYPH + 1;
+    rowOffsets = new int[height + 1];
+    rowOffsets[0] = header.length;
+    for (int i = 0; i < height; i++) {
+      rowOffsets[i + 1] = rowOffsets[i] + label(i + 1).length + rowLength;
+    }
+    frame = newFrame();
+  }
+
+  /**
+   * Allocate a frame holding the column numbers, the row numbers and the line ends, which never
+   * change.
+   *
+   * @return the frame
+   */
+  private byte[] newFrame() {
+    int height = board.getHeight();
+    byte[] buffer = new byte[rowOffsets[height]];
+    System.arraycopy(header, 0, buffer, 0, header.length);
+    for (int i = 0; i < height; i++) {
+      byte[] label = label(i + 1);
+      System.arraycopy(label, 0, buffer, rowOffsets[i], label.length);
+      buffer[rowOffsets[i + 1] - 1] = '\n';
+    }
+    return buffer;
+  }
+
+  /**
+   * Render the whole board, including the column numbers.
+   *
+   * @param showAnswer if game is over, the board rendered will show all grids that contain mines
+   * @throws UncheckedIOException On output error
+   */
+  public void render(boolean showAnswer) {
+    boolean timed = Metrics.isEnabled();
+    long start = timed ? System.nanoTime() : 0;
+    encode(showAnswer);
+    write(frame, frame.length);
+    if (timed) Metrics.recordRender(frame.length, System.nanoTime() - start);
+    if (previous != null) swap();
+  }
+
+  /**
+   * Render only the rows that changed since the previous frame. The first frame is rendered whole,
+   * and frames rendered whole before it are not compared against.
+   *
+   * @param showAnswer if game is over, the board rendered will show all grids that contain mines
+   * @return number of rows written
+   * @throws UncheckedIOException On output error
+   */
+  public int renderChanges(boolean showAnswer) {
+    if (previous == null) {
+      previous = newFrame();
+      delta = new byte[frame.length];
+      render(showAnswer);
+      return board.getHeight();
+    }
+
+    boolean timed = Metrics.isEnabled();
+    long start = timed ? System.nanoTime() : 0;
+    encode(showAnswer);
+    int length = 0;
+    int rows = 0;
+    for (int i = 0; i < board.getHeight(); i++) {
+      int from = rowOffsets[i];
+      int to = rowOffsets[i + 1];
+      if (!Arrays.equals(frame, from, to, previous, from, to)) {
+        System.arraycopy(frame, from, delta, length, to - from);
+        length += to - from;
+        rows++;
+      }
+    }
+    if (length > 0) write(delta, length);
+    if (timed) Metrics.recordRender(length, System.nanoTime() - start);
+    swap();
+    return rows;
+  }
+
+  /**
+   * Encode the glyph of every grid into {@link #frame}.
+   *
+   * @param showAnswer if the glyphs should show all grids that contain mines
+   */
+  private void encode(boolean showAnswer) {
+    byte[] glyphs = showAnswer ? ANSWER_GLYPHS : PLAYING_GLYPHS;
+    int width = board.getWidth();
+    for (int i = 0, index = 0; i < board.getHeight(); i++) {
+      int offset = rowOffsets[i + 1] - 1 - width * GLYPH;
+      for (int j = 0; j < width; j++, index++, offset += GLYPH) {
+        int glyph = board.getCell(index) * GLYPH;
+        frame[offset] = glyphs[glyph];
+        frame[offset + 1] = glyphs[glyph + 1];
+        frame[offset + 2] = glyphs[glyph + 2];
+      }
+    }
+  }
+
+  /** Keep the rendered frame as the previous frame. */
+  private void swap() {
+    byte[] rendered = frame;
+    frame = previous;
+    previous = rendered;
+  }
+
+  /**
+   * Write the first <code>length</code> bytes of a buffer and flush the stream.
+   *
+   * @param buffer the bytes to write
+   * @param length number of bytes to write
+   * @throws UncheckedIOException On output error
+   */
+  private void write(byte[] buffer, int length) {
+    try {
+      out.write(buffer, 0, length);
+      out.flush();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * Build the glyph table of every packed state. A grid marked as a mine shows as '*', a grid
+   * marked as a question field as '?', a checked grid as its number of adjacent mines or blank, and
+   * any other grid as 'X', or as '*' if it contains a mine and the answer is shown.
+   *
+   * @param showAnswer if the glyphs should show all grids that contain mines
+   * @return three bytes per packed state
+   */
+  private static byte[] glyphs(boolean showAnswer) {
+    byte[] glyphs = new byte[256 * GLYPH];
+    for (int cell = 0; cell < 256; cell++) {
+      byte glyph;
+      if ((cell & Board.MARKED_MINE) != 0) {
+        glyph = '*';
+      } else if ((cell & Board.MARKED_QUESTION) != 0) {
+        glyph = '?';
+      } else if ((cell & Board.CHECKED) != 0) {
+        int n = cell & Board.N_ADJ_MINE;
+        glyph = n == 0 ? (byte) ' ' : (byte) ('0' + n);
+      } else {
+        glyph = showAnswer && (cell & Board.MINE) != 0 ? (byte) '*' : (byte) 'X';
+      }
+      glyphs[cell * GLYPH] = ' ';
+      glyphs[cell * GLYPH + 1] = glyph;
+      glyphs[cell * GLYPH + 2] = ' ';
+    }
+    return glyphs;
+  }
+
+  /**
+   * Build the two lines of column numbers, tens above units, followed by an empty line.
+   *
+   * @param width the width of the board
+   * @return the encoded header
+   */
+  private static byte[] header(int width) {
+    StringBuilder build = new StringBuilder("   ");
+    for (int i = 0; i < width; i++) {
+      int tenth = (i + 1) / 10;
+      build.append(tenth > 0 ? " " + tenth + " " : "   ");
+    }
+    build.append("\n   ");
+    for (int i = 0; i < width; i++) {
+      build.append(' ').append((i + 1) % 10).append(' ');
+    }
+    build.append("\n\n");
+    return build.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Build the row number printed before a row.
+   *
+   * @param row the row number, starting from 1
+   * @return the encoded row number
+   */
+  private static byte[] label(int row) {
+    String label = row < 10 ? " " + row + " " : row + " ";
+    return label.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,558 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * ChunkedBoard is a game board of effectively unbounded size that only stores the parts the player
+ * has explored. The board is split into tiles of 64x64 grids. The mines of a tile are planted from
+ * a seed derived from the board's seed and the tile's position, so any tile can be generated on
+ * its own, on first touch, and generated again identically later. Adjacent mine counts along the
+ * edges of a tile are taken from the mine layouts of its neighboring tiles, which are cheap to
+ * regenerate.
+ *
+ * <p>Generated tiles use the same packed cell layout as {@link Board}, one byte per grid. When more
+ * tiles are generated than the configured limit, the least recently used ones are evicted: tiles
+ * the player never changed are simply dropped, and the others keep only their checked and marked
+ * bits, three bits per grid, from which the tile is restored when touched again. Each tile plants
+ * the number of mines closest to the board's density, so the total number of mines is known up
+ * front without generating anything.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ChunkedBoard {
+  /** Log2 of the number of rows and columns of a tile */
+  private static final int TILE_SHIFT = 6;
+  /** Number of rows and columns of a tile */
+  private static final int TILE = 1 << TILE_SHIFT;
+  /** Bits of a coordinate within its tile */
+  private static final int TILE_MASK = TILE - 1;
+  /** Bitset of a whole tile, shared by the compact tiles of every fully checked tile */
+  private static final long[] FULL = full();
+
+  /** A generated tile: the packed cells of up to 64x64 grids, stored row by row with stride 64 */
+  private static class Tile {
+    private final byte[] cells = new byte[TILE * TILE];
+    /** Determines if the player changed any grid of the tile */
+    private boolean touched;
+  }
+
+  /** Grids of a tile reached by a cascade while it was working through another tile */
+  private static class Deferred {
+    private long[] grids = new long[16];
+    private int size;
+  }
+
+  /** The player's state of an evicted tile, one bitset per flag, or <code>null</code> if clear */
+  private static class CompactTile {
+    private long[] checked;
+    private long[] markedMine;
+    private long[] markedQuestion;
+  }
+
+  /** Height of the board */
+  private final long height;
+  /** Width of the board */
+  private final long width;
+  /** Fraction of grids containing a mine */
+  private final double density;
+  /** Seed of the whole board, from which the seed of every tile is derived */
+  private final long seed;
+  /** Maximum number of generated tiles kept in memory */
+  private final int maxTiles;
+  /** Generated tiles by key, least recently used first */
+  private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+  /** Evicted tiles changed by the player, by key */
+  private final Map<Long, CompactTile> compactTiles = new HashMap<>();
+  /** Number of grids remaining to be checked */
+  private long gridToCheck;
+  /** Ring buffer of grids without adjacent mines whose neighbors are still to be checked */
+  private long[] worklist = new long[64];
+  /** Grids reached by the current cascade in tiles other than its current one, by tile key */
+  private final LinkedHashMap<Long, Deferred> deferred = new LinkedHashMap<>();
+
+  /**
+   * Initialize a board of the given size and mine density. Nothing is generated until a grid is
+   * touched.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param density the fraction of grids containing a mine, between 0 and 1
+   * @param seed the seed defining the mine layout
+   * @param maxTiles the maximum number of generated tiles kept in memory
+   * @throws IllegalArgumentException if the size, density or tile limit is invalid
+   */
+  public ChunkedBoard(long height, long width, double density, long seed, int maxTiles) {
+    if (height <= 0 || width <= 0 || height > (1L << 31) || width > (1L << 31)) {
+      throw new IllegalArgumentException("Invalid board size: " + height + "x" + width);
+    }
+    if (!(density >= 0 && density <= 1)) {
+      throw new IllegalArgumentException("Invalid mine density: " + density);
+    }
+    if (maxTiles < 1) throw new IllegalArgumentException("Invalid tile limit: " + maxTiles);
+    this.height = height;
+    this.width = width;
+    this.density = density;
+    this.seed = seed;
+    this.maxTiles = maxTiles;
+
+    long fullRows = height >>> TILE_SHIFT;
+    long fullColumns = width >>> TILE_SHIFT;
+    int lastRows = (int) (height & TILE_MASK);
+    int lastColumns = (int) (width & TILE_MASK);
+    long nMines = fullRows * fullColumns * tileMines(TILE, TILE);
+    nMines += fullRows * tileMines(TILE, lastColumns);
+    nMines += fullColumns * tileMines(lastRows, TILE);
+    nMines += tileMines(lastRows, lastColumns);
+    gridToCheck = height * width - nMines;
+  }
+
+  /**
+   * Get the height of the board.
+   *
+   * @return height of the board
+   */
+  public long getHeight() {
+    return height;
+  }
+
+  /**
+   * Get the width of the board.
+   *
+   * @return width of the board
+   */
+  public long getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the number of grids remaining to be checked.
+   *
+   * @return number of remaining grids to check
+   */
+  public long getGridToCheck() {
+    return gridToCheck;
+  }
+
+  /**
+   * Get the number of tiles currently generated in memory.
+   *
+   * @return number of generated tiles
+   */
+  public int getGeneratedTiles() {
+    return tiles.size();
+  }
+
+  /**
+   * Get the number of evicted tiles kept in compact form.
+   *
+   * @return number of compact tiles
+   */
+  public int getCompactTiles() {
+    return compactTiles.size();
+  }
+
+  /**
+   * Get the packed state of the grid at the given coordinate, in the layout of {@link Board}.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return the packed state as an unsigned value
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  public int getCell(long y, long x) {
+    validate(y, x);
+    return tile(y, x).cells[offset(y, x)] & 0xFF;
+  }
+
+  /**
+   * Check the grid at the given coordinate, and every grid of its cascade if it has no adjacent
+   * mines, like {@link Grid#checkGrid()}. The cascade works through one tile at a time: grids it
+   * reaches in other tiles are deferred until their tile's turn, so only the tile being worked on
+   * must stay generated, and tiles beyond the limit are evicted while the cascade goes on.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return <code>true</code> the grid does not contain a mine and is safely checked;
+   *         <code>false </code> the grid contains a mine and now the game is over
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  public boolean checkGrid(long y, long x) {
+    validate(y, x);
+    Tile tile = tile(y, x);
+    int cell = tile.cells[offset(y, x)];
+    if ((cell & Board.MINE) != 0) return false;
+    if ((cell & Board.CHECKED) != 0) return true;
+
+    long key = key(y, x);
+    int head = 0;
+    int size = 0;
+    if (reveal(tile, y, x) == 0) worklist[size++] = y * width + x;
+    while (true) {
+      while (size > 0) {
+        long current = worklist[head];
+        head = (head + 1) & (worklist.length - 1);
+        size--;
+        long cy = current / width;
+        long cx = current % width;
+        for (long ny = Math.max(0, cy - 1); ny <= Math.min(height - 1, cy + 1); ny++) {
+          for (long nx = Math.max(0, cx - 1); nx <= Math.min(width - 1, cx + 1); nx++) {
+            if (key(ny, nx) != key) {
+              defer(ny, nx);
+              continue;
+            }
+            int neighbor = tile.cells[offset(ny, nx)];
+            if ((neighbor & (Board.MINE | Board.CHECKED)) != 0) continue;
+            if (reveal(tile, ny, nx) != 0) continue;
+            if (size == worklist.length) {
+              long[] grown = new long[worklist.length * 2];
+              int tail = worklist.length - head;
+              System.arraycopy(worklist, head, grown, 0, tail);
+              System.arraycopy(worklist, 0, grown, tail, size - tail);
+              worklist = grown;
+              head = 0;
+            }
+            worklist[(head + size++) & (worklist.length - 1)] = ny * width + nx;
+          }
+        }
+      }
+      if (deferred.isEmpty()) return true;
+
+      Iterator<Map.Entry<Long, Deferred>> next = deferred.entrySet().iterator();
+      Map.Entry<Long, Deferred> entry = next.next();
+      next.remove();
+      key = entry.getKey();
+      Deferred grids = entry.getValue();
+      tile = null;
+      head = 0;
+      for (int i = 0; i < grids.size; i++) {
+        long grid = grids.grids[i];
+        long gy = grid / width;
+        long gx = grid % width;
+        if (tile == null) tile = tile(gy, gx);
+        int neighbor = tile.cells[offset(gy, gx)];
+        if ((neighbor & (Board.MINE | Board.CHECKED)) != 0) continue;
+        if (reveal(tile, gy, gx) != 0) continue;
+        if (size == worklist.length) worklist = Arrays.copyOf(worklist, size * 2);
+        worklist[size++] = grid;
+      }
+    }
+  }
+
+  /**
+   * Mark the grid at the given coordinate as containing a mine.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  public void markAsMine(long y, long x) {
+    update(y, x, Board.MARKED_QUESTION, Board.MARKED_MINE);
+  }
+
+  /**
+   * Mark the grid at the given coordinate as an uncertain identity.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  public void markAsQuestion(long y, long x) {
+    update(y, x, Board.MARKED_MINE, Board.MARKED_QUESTION);
+  }
+
+  /**
+   * Unmark the grid at the given coordinate from either mine or question field.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  public void unmark(long y, long x) {
+    update(y, x, Board.MARKED_MINE | Board.MARKED_QUESTION, 0);
+  }
+
+  /**
+   * Clear and set bits of the grid at the given coordinate.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @param clear the bits to clear
+   * @param set the bits to set
+   */
+  private void update(long y, long x, int clear, int set) {
+    validate(y, x);
+    Tile tile = tile(y, x);
+    int offset = offset(y, x);
+    tile.cells[offset] = (byte) ((tile.cells[offset] & ~clear) | set);
+    tile.touched = true;
+  }
+
+  /**
+   * Mark a grid without a mine as checked, clear its marks and decrement {@link #gridToCheck}.
+   *
+   * @param tile the tile of the grid
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return number of adjacent mines of the grid
+   */
+  private int reveal(Tile tile, long y, long x) {
+    int offset = offset(y, x);
+    int cell = tile.cells[offset];
+    tile.cells[offset] =
+        (byte) ((cell & ~(Board.MARKED_MINE | Board.MARKED_QUESTION)) | Board.CHECKED);
+    tile.touched = true;
+    gridToCheck--;
+    return cell & Board.N_ADJ_MINE;
+  }
+
+  /**
+   * Get the tile holding a grid, generating it if needed.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return the generated tile
+   */
+  private Tile tile(long y, long x) {
+    Long key = key(y, x);
+    Tile tile = tiles.get(key);
+    if (tile == null) {
+      tile = generate(y >>> TILE_SHIFT, x >>> TILE_SHIFT);
+      restore(tile, compactTiles.remove(key));
+      tiles.put(key, tile);
+      trim();
+    }
+    return tile;
+  }
+
+  /**
+   * Get the key of the tile holding a grid.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return the row of the tile in the high half, and its column in the low half
+   */
+  private static long key(long y, long x) {
+    return (y >>> TILE_SHIFT << 32) | (x >>> TILE_SHIFT);
+  }
+
+  /**
+   * Defer a grid reached by a cascade until the cascade works through its tile.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   */
+  private void defer(long y, long x) {
+    Deferred grids = deferred.computeIfAbsent(key(y, x), k -> new Deferred());
+    if (grids.size == grids.grids.length) grids.grids = Arrays.copyOf(grids.grids, grids.size * 2);
+    grids.grids[grids.size++] = y * width + x;
+  }
+
+  /**
+   * Generate the mines and adjacent mine counts of a tile from its seed and the mine layouts of its
+   * neighboring tiles.
+   *
+   * @param ty the row of the tile
+   * @param tx the column of the tile
+   * @return the generated tile
+   */
+  private Tile generate(long ty, long tx) {
+    long[][] layouts = new long[9][];
+    for (int dy = -1; dy <= 1; dy++) {
+      for (int dx = -1; dx <= 1; dx++) {
+        layouts[(dy + 1) * 3 + dx + 1] = mineLayout(ty + dy, tx + dx);
+      }
+    }
+
+    Tile tile = new Tile();
+    int rows = rows(ty);
+    int columns = columns(tx);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        int cell = isMine(layouts, r, c) ? Board.MINE : 0;
+        for (int dr = -1; dr <= 1; dr++) {
+          for (int dc = -1; dc <= 1; dc++) {
+            if ((dr | dc) != 0 && isMine(layouts, r + dr, c + dc)) cell++;
+          }
+        }
+        tile.cells[(r << TILE_SHIFT) + c] = (byte) cell;
+      }
+    }
+    return tile;
+  }
+
+  /**
+   * Check if a grid contains a mine, given the mine layouts of a tile and its neighbors. The row
+   * and column may reach one grid into the neighboring tiles.
+   *
+   * @param layouts the mine layouts of the tile and its neighbors, row by row
+   * @param r the row of the grid relative to the tile, from -1 to 64
+   * @param c the column of the grid relative to the tile, from -1 to 64
+   * @return <code>true</code> if the grid contains a mine
+   */
+  private static boolean isMine(long[][] layouts, int r, int c) {
+    int dy = r < 0 ? -1 : r >= TILE ? 1 : 0;
+    int dx = c < 0 ? -1 : c >= TILE ? 1 : 0;
+    long[] layout = layouts[(dy + 1) * 3 + dx + 1];
+    if (layout == null) return false;
+    return (layout[r & TILE_MASK] >>> (c & TILE_MASK) & 1L) != 0;
+  }
+
+  /**
+   * Plant the mines of a tile from its own seed with Floyd's algorithm.
+   *
+   * @param ty the row of the tile
+   * @param tx the column of the tile
+   * @return one bitset per row of the tile, or <code>null</code> if the tile is outside the board
+   */
+  private long[] mineLayout(long ty, long tx) {
+    if (ty < 0 || tx < 0 || ty << TILE_SHIFT >= height || tx << TILE_SHIFT >= width) return null;
+    int rows = rows(ty);
+    int columns = columns(tx);
+    int cells = rows * columns;
+    long[] layout = new long[TILE];
+    SplittableRandom random = new SplittableRandom(seed ^ (ty * 0x9E3779B97F4A7C15L + tx));
+    for (int j = cells - tileMines(rows, columns); j < cells; j++) {
+      int t = random.nextInt(j + 1);
+      if ((layout[t / columns] >>> (t % columns) & 1L) != 0) t = j;
+      layout[t / columns] |= 1L << (t % columns);
+    }
+    return layout;
+  }
+
+  /**
+   * Restore the player's state of an evicted tile into a freshly generated tile.
+   *
+   * @param tile the generated tile
+   * @param compact the player's state, or <code>null</code> if the tile was never changed
+   */
+  private static void restore(Tile tile, CompactTile compact) {
+    if (compact == null) return;
+    tile.touched = true;
+    for (int i = 0; i < TILE * TILE; i++) {
+      int bits = 0;
+      if (isSet(compact.checked, i)) bits |= Board.CHECKED;
+      if (isSet(compact.markedMine, i)) bits |= Board.MARKED_MINE;
+      if (isSet(compact.markedQuestion, i)) bits |= Board.MARKED_QUESTION;
+      tile.cells[i] |= bits;
+    }
+  }
+
+  /** Evict the least recently used tiles until no more than the limit are generated. */
+  private void trim() {
+    Iterator<Map.Entry<Long, Tile>> eldest = tiles.entrySet().iterator();
+    while (tiles.size() > maxTiles) {
+      Map.Entry<Long, Tile> entry = eldest.next();
+      Tile tile = entry.getValue();
+      if (tile.touched) {
+        CompactTile compact = new CompactTile();
+        compact.checked = plane(tile, Board.CHECKED);
+        compact.markedMine = plane(tile, Board.MARKED_MINE);
+        compact.markedQuestion = plane(tile, Board.MARKED_QUESTION);
+        compactTiles.put(entry.getKey(), compact);
+      }
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Extract one flag of every grid of a tile into a bitset.
+   *
+   * @param tile the tile
+   * @param flag the flag to extract
+   * @return the bitset, {@link #FULL} if every grid has the flag, or <code>null</code> if no grid
+   *     has it
+   */
+  private static long[] plane(Tile tile, int flag) {
+    long[] plane = null;
+    for (int i = 0; i < TILE * TILE; i++) {
+      if ((tile.cells[i] & flag) == 0) continue;
+      if (plane == null) plane = new long[TILE];
+      plane[i >>> TILE_SHIFT] |= 1L << (i & TILE_MASK);
+    }
+    return plane != null && Arrays.equals(plane, FULL) ? FULL : plane;
+  }
+
+  /**
+   * Build the bitset of a whole tile.
+   *
+   * @return the bitset with every bit set
+   */
+  private static long[] full() {
+    long[] full = new long[TILE];
+    Arrays.fill(full, -1L);
+    return full;
+  }
+
+  /**
+   * Check if a bit is set in a bitset that may be <code>null</code>.
+   *
+   * @param plane the bitset
+   * @param i the index of the bit
+   * @return <code>true</code> if the bit is set
+   */
+  private static boolean isSet(long[] plane, int i) {
+    return plane != null && (plane[i >>> TILE_SHIFT] >>> (i & TILE_MASK) & 1L) != 0;
+  }
+
+  /**
+   * Get the number of mines planted in a tile of the given size.
+   *
+   * @param rows number of rows of the tile
+   * @param columns number of columns of the tile
+   * @return number of mines
+   */
+  private int tileMines(int rows, int columns) {
+    return (int) Math.round(density * rows * columns);
+  }
+
+  /**
+   * Get the number of rows of a tile, which is smaller than 64 for the last row of tiles.
+   *
+   * @param ty the row of the tile
+   * @return number of rows
+   */
+  private int rows(long ty) {
+    return (int) Math.min(TILE, height - (ty << TILE_SHIFT));
+  }
+
+  /**
+   * Get the number of columns of a tile, which is smaller than 64 for the last column of tiles.
+   *
+   * @param tx the column of the tile
+   * @return number of columns
+   */
+  private int columns(long tx) {
+    return (int) Math.min(TILE, width - (tx << TILE_SHIFT));
+  }
+
+  /**
+   * Get the offset of a grid within its tile.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return the offset of the grid's packed cell
+   */
+  private static int offset(long y, long x) {
+    return ((int) (y & TILE_MASK) << TILE_SHIFT) + (int) (x & TILE_MASK);
+  }
+
+  /**
+   * Validate that a coordinate is within the board.
+   *
+   * @param y the y coordinate
+   * @param x the x coordinate
+   * @throws ArrayIndexOutOfBoundsException if the coordinate is outside of the board
+   */
+  private void validate(long y, long x) {
+    if (y < 0 || y >= height || x < 0 || x >= width) {
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of board: " + y + " " + x);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * ConcurrentReveal checks grids of a {@link Board} shared by several players, each checking from
+ * their own thread. Every grid is checked with a compare-and-set by {@link Board#tryReveal(int)},
+ * so when two cascades meet, each grid is checked and counted by exactly one thread, and a grid
+ * without adjacent mines is expanded by the thread that checked it.
+ *
+ * <p>The rows of the board are split into regions of {@link #REGION_ROWS} rows, and regions share
+ * a fixed number of striped locks. A cascade is expanded region by region: the grids of one region
+ * are expanded while holding its lock, and the grids it spills into other regions are put aside
+ * until the region is done. Cascades far apart run in parallel, while cascades meeting in a region
+ * take turns instead of racing over the same grids. A thread holds one lock at a time, so threads
+ * never wait on each other in a cycle.
+ *
+ * <p>Only the state of the grids is shared: the game's own bookkeeping, such as {@link
+ * GameEngine}, must still be called by one thread at a time.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ConcurrentReveal {
+  /** Number of rows of a region */
+  static final int REGION_ROWS = 16;
+  /** Number of locks the regions are striped over */
+  private static final int LOCKS = 64;
+
+  /** The board being checked */
+  private final Board board;
+  /** Width of the board */
+  private final int width;
+  /** Locks of the regions, region <i>r</i> using lock <i>r</i> modulo their number */
+  private final Object[] locks;
+  /** Worklists of each thread, reused across cascades */
+  private final ThreadLocal<Worklists> worklists = ThreadLocal.withInitial(Worklists::new);
+
+  /** The grids waiting to be expanded by one thread. */
+  private static class Worklists {
+    /** Grids of the region being expanded */
+    private int[] inner = new int[64];
+    private int nInner;
+    /** Grids of other regions, expanded once the current region is done */
+    private int[] outer = new int[64];
+    private int nOuter;
+  }
+
+  /**
+   * Initialize an engine for the board.
+   *
+   * @param board the board to check
+   */
+  ConcurrentReveal(Board board) {
+    this.board = board;
+    width = board.getWidth();
+    int regions = (board.getHeight() + REGION_ROWS - 1) / REGION_ROWS;
+    locks = new Object[Math.min(regions, LOCKS)];
+    for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+  }
+
+  /**
+   * Check the grid at the given index, which must not contain a mine, and every grid its cascade
+   * reaches, unless other threads check them first. The number of grids to check of the board is
+   * left for the caller to update.
+   *
+   * @param index the row-major index of the grid
+   * @return number of grids checked by this thread
+   */
+  int reveal(int index) {
+    int nAdjMine = board.tryReveal(index);
+    if (nAdjMine < 0) return 0;
+    if (nAdjMine > 0) return 1;
+
+    Worklists lists = worklists.get();
+    int revealed = 1;
+    lists.outer[lists.nOuter++] = index;
+    while (lists.nOuter > 0) {
+      int region = region(lists.outer[lists.nOuter - 1]);
+      synchronized (locks[region % locks.length]) {
+        // Take every grid put aside for this region, then expand the region.
+        for (int i = 0; i < lists.nOuter; ) {
+          int grid = lists.outer[i];
+          if (region(grid) == region) {
+            push(lists, grid, true);
+            lists.outer[i] = lists.outer[--lists.nOuter];
+          } else {
+            i++;
+          }
+        }
+        revealed += expand(lists, region);
+      }
+    }
+    return revealed;
+  }
+
+  /**
+   * Expand the grids without adjacent mines of a region until none are left, putting aside the
+   * grids without adjacent mines checked in other regions.
+   *
+   * @param lists the worklists of the thread
+   * @param region the region being expanded, whose lock is held
+   * @return number of grids checked
+   */
+  private int expand(Worklists lists, int region) {
+    int revealed = 0;
+    while (lists.nInner > 0) {
+      int current = lists.inner[--lists.nInner];
+      for (int m = board.getNeighborMask(current); m != 0; m &= m - 1) {
+        int neighbor = board.getNeighbor(current, Integer.numberOfTrailingZeros(m));
+        int nAdjMine = board.tryReveal(neighbor);
+        if (nAdjMine < 0) continue;
+        revealed++;
+        if (nAdjMine == 0) push(lists, neighbor, region(neighbor) == region);
+      }
+    }
+    return revealed;
+  }
+
+  /**
+   * Add a grid without adjacent mines to one of the worklists, growing it if needed.
+   *
+   * @param lists the worklists of the thread
+   * @param grid the row-major index of the grid
+   * @param inner <code>true</code> for the grids of the current region
+   */
+  private static void push(Worklists lists, int grid, boolean inner) {
+    if (inner) {
+      if (lists.nInner == lists.inner.length) {
+        lists.inner = Arrays.copyOf(lists.inner, lists.nInner * 2);
+      }
+      lists.inner[lists.nInner++] = grid;
+    } else {
+      if (lists.nOuter == lists.outer.length) {
+        lists.outer = Arrays.copyOf(lists.outer, lists.nOuter * 2);
+      }
+      lists.outer[lists.nOuter++] = grid;
+    }
+  }
+
+  /**
+   * Get the region of a grid.
+   *
+   * @param grid the row-major index of the grid
+   * @return the index of the region
+   */
+  private int region(int grid) {
+    return grid / width / REGION_ROWS;
+  }
+}
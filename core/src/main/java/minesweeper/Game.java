@@ -0,0 +1,369 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Game implements the user interface so that the Minesweeper game can be played in text-based
+ * fashion. The rules of the game are applied by a {@link GameEngine}; Game only reads the user's
+ * choices, turns them into moves and reports their outcome. The game continues as long as the
+ * engine reports that the game is not over.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class Game {
+  /** Height, width and number of mines of the common boards, generated ahead of time */
+  static final int[][] COMMON_SIZES = {{9, 9, 10}, {16, 16, 40}, {16, 30, 99}};
+
+  /** The engine applying the moves of the game */
+  private GameEngine engine;
+  /** The engine computing the probabilities of the hints */
+  private ProbabilityEngine hints;
+  /** The generator of boards that can be won without guessing */
+  private NoGuessGenerator noGuess;
+  /** Boards that can be won without guessing, generated ahead of time */
+  private BoardPool noGuessBoards;
+  /** Seeded boards, generated ahead of time */
+  private BoardPool seededBoards;
+  /** The reader of the user inputs, shared by every prompt of the game */
+  private BufferedReader userInputReader;
+  /** Time spent waiting for user inputs during the current turn, in nanoseconds */
+  private long inputNanos;
+
+  /**
+   * Initialize the game by asking the user inputs for height, width, and number of mines in the
+   * game board, and whether the board must be won without guessing, or for the ID of a board
+   * played before. Boards of the common sizes, seeded or won without guessing, are generated in
+   * the background while the user answers, so that a game of a common size starts without
+   * waiting; the threads generating them are daemons, stop once the board is chosen, and stop on
+   * their own when idle. Then, the method instructs the user on how
+   * to enter the user input for selecting a coordinate. The method {@link #takeTurn()} is
+   * continually invoked until the game is over. When game is over, at the end prints the all of
+   * the locations of the grids containing mines.
+   *
+   * @throws IOException On input error
+   * @see #takeTurn()
+   * @see #readBoard()
+   * @see Board#printBoard(boolean)
+   * @see BoardPool#take(int, int, int)
+   */
+  public void initGame() throws IOException {
+    noGuess = new NoGuessGenerator(System.nanoTime());
+    noGuessBoards = new BoardPool(noGuess::generate, COMMON_SIZES.length, 1, 1);
+    seededBoards = new BoardPool(BoardPool.SEEDED, COMMON_SIZES.length, 1, 1);
+    for (int[] size : COMMON_SIZES) {
+      seededBoards.prefill(size[0], size[1], size[2]);
+      noGuessBoards.prefill(size[0], size[1], size[2]);
+    }
+    userInputReader = Input.generateBR(System.in);
+    Board board;
+    try {
+      board = readBoard();
+    } finally {
+      seededBoards.close();
+      noGuessBoards.close();
+      noGuess.close();
+    }
+    engine = new GameEngine(board);
+    hints = new ProbabilityEngine(board);
+
+    String instruction =
+        "Select a grid to perform a further action."
+            + "\nEnter the y and x coordinates with a empty character in between. "
+            + "\nFor example, to select the grid with y coordinate of 3 and x coordinate of 8, "
+            + "enter \"3 8\""
+            + "\nEnter \"hint\" to see the grid least likely to contain a mine.";
+    System.out.println(instruction);
+
+    while (!engine.isGameOver()) takeTurn();
+
+    board.printBoard(true);
+    userInputReader.close();
+  }
+
+  /**
+   * Ask the user for the board to play: either the ID of a board played before, or the height,
+   * width, and number of mines of a new board, and whether it must be won without guessing. Other
+   * new boards, and boards too dense to be won without guessing, are seeded, and their ID is
+   * printed so that they can be played again. A mistyped ID, and an invalid size or number of
+   * mines, are asked again.
+   *
+   * @return the board, ready to be played
+   * @throws IOException On input error
+   * @see BoardId
+   */
+  private Board readBoard() throws IOException {
+    while (true) {
+      System.out.print("Enter a board ID to play again, or press enter for a new board: ");
+      String id = readLine().trim();
+      if (id.isEmpty()) break;
+      try {
+        return BoardId.parse(id).generate();
+      } catch (IllegalArgumentException iae) {
+        System.out.println("Invalid board ID. Please try again.");
+      }
+    }
+
+    int height;
+    int width;
+    int mines;
+    while (true) {
+      try {
+        System.out.print("Enter the board's height: ");
+        height = Integer.parseInt(readLine().trim());
+        System.out.print("Enter the board's width: ");
+        width = Integer.parseInt(readLine().trim());
+        System.out.print("Enter the number of mines: ");
+        mines = Integer.parseInt(readLine().trim());
+        new BoardId(height, width, mines, 0);
+        break;
+      } catch (IllegalArgumentException iae) {
+        System.out.println("Invalid board size or number of mines. Please try again.");
+      }
+    }
+    System.out.print("Generate a board that can be won without guessing? (y/n): ");
+    if (readLine().trim().equalsIgnoreCase("y")) {
+      try {
+        Board board = noGuessBoards.take(height, width, mines);
+        System.out.println("The grid in the middle of the board is checked to start the game.");
+        return board;
+      } catch (IllegalArgumentException iae) {
+        System.out.println(iae.getMessage() + ". A random board is generated instead.");
+      }
+    }
+    Board board = seededBoards.take(height, width, mines);
+    System.out.println("Board ID: " + board.getId());
+    return board;
+  }
+
+  /**
+   * Print the board and ask the user to enter coordinates on where to select. The method {@link
+   * #gridOption(Grid, int, int)} is invoked on the selected coordinate. If the user input is not a
+   * coordinate within the board, the user is told so and the turn ends without any change, so that
+   * the next turn asks again. The user may also ask for a hint instead of a coordinate. While
+   * {@link Metrics} are enabled, the latency of the turn is recorded, without the time spent
+   * waiting for the user.
+   *
+   * @throws IOException On input error
+   * @see Board#printBoard(boolean)
+   */
+  private void takeTurn() throws IOException {
+    if (!Metrics.isEnabled()) {
+      playTurn();
+      return;
+    }
+    long start = System.nanoTime();
+    inputNanos = 0;
+    playTurn();
+    Metrics.recordTurn(System.nanoTime() - start - inputNanos);
+  }
+
+  /**
+   * Play one turn, as described by {@link #takeTurn()}.
+   *
+   * @throws IOException On input error
+   */
+  private void playTurn() throws IOException {
+    Board board = engine.getBoard();
+    board.printBoard(false);
+    System.out.println("Number of mines left: " + engine.getNLeftMine());
+
+    System.out.println("Enter the coordinate as instructed to select a grid:");
+    String line = readLine();
+    if (line.trim().equalsIgnoreCase("hint")) {
+      printHint();
+      return;
+    }
+    int[] coord = parseCoordinate(line);
+    if (coord == null || !board.validateCoord(coord)) {
+      System.out.println("The given coordinate is invalid. Please try again.");
+      return;
+    }
+    gridOption(board.getGrid(coord[0], coord[1]), coord[0], coord[1]);
+  }
+
+  /**
+   * Print the unchecked grid least likely to contain a mine, with its probability.
+   *
+   * @see ProbabilityEngine#mineProbabilities()
+   */
+  private void printHint() {
+    Board board = engine.getBoard();
+    double[] probabilities = hints.mineProbabilities();
+    int best = -1;
+    for (int i = 0; i < probabilities.length; i++) {
+      if ((board.getCell(i) & Board.CHECKED) != 0) continue;
+      if (best < 0 || probabilities[i] < probabilities[best]) best = i;
+    }
+    System.out.printf(
+        "Hint: the grid %d %d contains a mine with probability %.1f%%%n",
+        best / board.getWidth() + 1, best % board.getWidth() + 1, probabilities[best] * 100);
+  }
+
+  /**
+   * Parse a coordinate entered as the y and x coordinates with a empty character in between, both
+   * starting from 1. Words after the coordinate are ignored.
+   *
+   * @param line the user input
+   * @return the y and x indexes, starting from 0, or <code>null</code> if the input is not a
+   *     coordinate
+   */
+  static int[] parseCoordinate(String line) {
+    String[] selectedCoord = line.trim().split(" +");
+    try {
+      return new int[] {
+        Integer.parseInt(selectedCoord[0]) - 1, Integer.parseInt(selectedCoord[1]) - 1
+      };
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * The options available in the current state of the grid are listed, and the chosen one is
+   * applied. The user is asked again until a listed option is chosen. A checked grid has a single
+   * option, chording its neighbors, which the user may decline to select another grid.
+   *
+   * @param grid the selected {@link Grid}
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @throws IOException On input error
+   * @see #generateOperationMenu(Grid)
+   * @see #selectAction(Grid, int)
+   * @see #reportResult(GameEngine.MoveResult)
+   */
+  private void gridOption(Grid grid, int y, int x) throws IOException {
+    GameEngine.Action action = null;
+    while (action == null) {
+      System.out.println(generateOperationMenu(grid));
+      int option;
+      try {
+        option = Integer.parseInt(readLine().trim());
+      } catch (NumberFormatException nfe) {
+        option = 0;
+      }
+      if (grid.isChecked() && option == 2) return;
+      action = selectAction(grid, option);
+      if (action == null) System.out.println("Invalid choice. Please select again.");
+    }
+    GameEngine.MoveResult result = engine.apply(action, y, x);
+    if (action == GameEngine.Action.CHORD && result == GameEngine.MoveResult.NOT_ALLOWED) {
+      System.out.println(
+          "The marked neighbors must match the number of adjacent mines, "
+              + "and a neighbor must be left to check.");
+    }
+    reportResult(result);
+  }
+
+  /**
+   * Translate an option of the menu into the action it stands for. If the grid is checked, its
+   * unmarked neighbors can be checked at once by chording. If the grid is not marked, the grid can
+   * be checked, or marked as either a mine or a question field. If the grid is marked as a mine
+   * field, it can be changed to a question field or unmarked, and if it is marked as a question
+   * field, it can be changed to a mine field or unmarked.
+   *
+   * @param grid the selected {@link Grid}
+   * @param option the option chosen by the user
+   * @return the chosen action, or <code>null</code> if the option is not in the menu
+   */
+  static GameEngine.Action selectAction(Grid grid, int option) {
+    if (grid.isChecked()) return option == 1 ? GameEngine.Action.CHORD : null;
+    if (!grid.isMarkedMine() && !grid.isMarkedQuestion()) {
+      switch (option) {
+        case 1:
+          return GameEngine.Action.REVEAL;
+        case 2:
+          return GameEngine.Action.FLAG;
+        case 3:
+          return GameEngine.Action.QUESTION;
+        default:
+          return null;
+      }
+    }
+
+    switch (option) {
+      case 1:
+        return grid.isMarkedMine() ? GameEngine.Action.QUESTION : GameEngine.Action.FLAG;
+      case 2:
+        return GameEngine.Action.UNMARK;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Tell the user the outcome of a move that did not simply succeed.
+   *
+   * @param result the outcome reported by the engine
+   */
+  private void reportResult(GameEngine.MoveResult result) {
+    switch (result) {
+      case WON:
+        System.out.println("You've checked all of the grids! Game won");
+        break;
+      case LOST:
+        System.out.println("The grid contains a mine! Game over");
+        break;
+      case NO_MINE_LEFT:
+        System.out.println(
+            "All mines are already marked: some of the marked gris must be not mine fields.");
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Generate the available options based on the state of the grid.
+   *
+   * @param grid the current {@link Grid}
+   * @return the text containing the option listing
+   * @see Grid#isMarkedMine()
+   * @see Grid#isMarkedQuestion()
+   */
+  private String generateOperationMenu(Grid grid) {
+    StringBuilder build = new StringBuilder();
+    build.append("Enter the desired operation.");
+    if (grid.isChecked()) {
+      build.append("\n1. Check every unmarked neighbor (Gameover if a mark is wrong!!)");
+      build.append("\n2. Select another grid");
+    } else if (!grid.isMarkedMine() && !grid.isMarkedQuestion()) {
+      build.append("\n1. Check the grid (Gameover if there is a mine!!)");
+      build.append("\n2. Mark the grid as a mine field");
+      build.append("\n3. Mark the grid as a question field");
+    } else {
+      if (grid.isMarkedMine()) build.append("\n1. Change the grid to a question field");
+      else if (grid.isMarkedQuestion()) build.append("\n1. Change the grid to a mine field");
+      build.append("\n2. Unmark the grid");
+    }
+    return build.toString();
+  }
+
+  /**
+   * Read the next line of user input.
+   *
+   * @return the line read
+   * @throws EOFException if the input has ended
+   * @throws IOException On input error
+   */
+  private String readLine() throws IOException {
+    long start = System.nanoTime();
+    String line = userInputReader.readLine();
+    inputNanos += System.nanoTime() - start;
+    if (line == null) throw new EOFException("No more user input");
+    return line;
+  }
+
+  public static void main(String[] args) {
+    Metrics.register();
+    Game game = new Game();
+    try {
+      game.initGame();
+    } catch (IOException ioe) {
+      System.err.println("IO exception: " + ioe);
+    }
+  }
+}
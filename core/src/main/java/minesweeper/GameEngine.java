@@ -0,0 +1,356 @@
+package minesweeper;
+
+/**
+ * GameEngine applies the rules of the Minesweeper game to a {@link Board} without any input or
+ * output of its own, so that games can be driven programmatically. Every move names a coordinate
+ * and an {@link Action}, and reports its outcome as a {@link MoveResult}. The text-based {@link
+ * Game} is a user interface on top of the engine.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class GameEngine {
+  /** Actions a player can take on a grid */
+  public enum Action {
+    /** Check the grid */
+    REVEAL,
+    /** Mark the grid as a mine field */
+    FLAG,
+    /** Mark the grid as a question field */
+    QUESTION,
+    /** Remove the mark of the grid */
+    UNMARK,
+    /** Check every unmarked neighbor of a checked grid whose adjacent mines are all marked */
+    CHORD
+  }
+
+  /** Outcomes of a move */
+  public enum MoveResult {
+    /** The move was applied and the game goes on */
+    OK,
+    /** The move checked the last grid without a mine, and the game is won */
+    WON,
+    /** The move checked a grid containing a mine, and the game is lost */
+    LOST,
+    /** The coordinate is outside of the board; nothing changed */
+    INVALID_COORDINATE,
+    /** The grid is already checked; nothing changed */
+    ALREADY_CHECKED,
+    /** The action is not available in the current state of the grid; nothing changed */
+    NOT_ALLOWED,
+    /** Every mine is already marked, so no other grid can be marked as a mine; nothing changed */
+    NO_MINE_LEFT,
+    /** The game is already over; nothing changed */
+    GAME_OVER
+  }
+
+  /** The game board */
+  private final Board board;
+  /** Determines if the game is over */
+  private boolean gameOver;
+  /** Number of remaining mines as marked by the user. May be different from the true number */
+  private int nLeftMine;
+  /** Determines if no grid has been checked yet, in which case the grid is guaranteed safe */
+  private boolean firstCheck;
+  /** Number of grids checked by the last move */
+  private int lastRevealed;
+  /** Number of moves that changed the game */
+  private int moves;
+  /** Number of moves that checked a grid without a mine */
+  private int checks;
+  /** The file the state of the game is written through to, or <code>null</code> if unsaved */
+  private BoardFile file;
+
+  /**
+   * Initialize a game on the given board, whose mines must already be planted. Grids the board
+   * already has checked, such as the opening of a board generated without guessing, are part of
+   * the game, and the first check of a board with checked grids is not moved away from a mine.
+   *
+   * @param board the game {@link Board}
+   */
+  public GameEngine(Board board) {
+    this.board = board;
+    nLeftMine = board.getNMines();
+    firstCheck = board.getGridToCheck() == board.size() - board.getNMines();
+  }
+
+  /**
+   * Resume a game on the given board from its saved state.
+   *
+   * @param board the game {@link Board}, as it was saved
+   * @param nLeftMine number of remaining mines as marked by the user
+   * @param gameOver determines if the game is over
+   * @param firstCheck determines if no grid has been checked yet
+   * @see BoardFile#open(java.nio.file.Path)
+   */
+  GameEngine(Board board, int nLeftMine, boolean gameOver, boolean firstCheck) {
+    this.board = board;
+    this.nLeftMine = nLeftMine;
+    this.gameOver = gameOver;
+    this.firstCheck = firstCheck;
+  }
+
+  /**
+   * Get the game board.
+   *
+   * @return the game {@link Board}
+   */
+  public Board getBoard() {
+    return board;
+  }
+
+  /**
+   * Check if the game is over, either won or lost.
+   *
+   * @return <code>true</code> if the game is over
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Get the number of remaining mines as marked by the user.
+   *
+   * @return number of mines not marked yet
+   */
+  public int getNLeftMine() {
+    return nLeftMine;
+  }
+
+  /**
+   * Get the number of moves that changed the game so far.
+   *
+   * @return number of moves
+   */
+  public int getMoves() {
+    return moves;
+  }
+
+  /**
+   * Get the number of moves that checked a grid without a mine so far. Each of them checked
+   * {@link #getLastRevealed()} grids at the time, including its cascade.
+   *
+   * @return number of checks
+   */
+  public int getChecks() {
+    return checks;
+  }
+
+  /**
+   * Determine if no grid has been checked yet.
+   *
+   * @return <code>true</code> if the next grid checked is guaranteed safe
+   */
+  boolean isFirstCheck() {
+    return firstCheck;
+  }
+
+  /**
+   * Write every later change of the game through to a file, or stop doing so.
+   *
+   * @param file the file holding the game, or <code>null</code> to detach the current one
+   */
+  void attach(BoardFile file) {
+    this.file = file;
+    board.attach(file);
+  }
+
+  /**
+   * Get the number of grids checked by the last move, including the cascade of grids without
+   * adjacent mines.
+   *
+   * @return number of grids checked
+   */
+  public int getLastRevealed() {
+    return lastRevealed;
+  }
+
+  /**
+   * Apply an action to the grid at the given coordinate.
+   *
+   * @param action the action to take
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move
+   */
+  public MoveResult apply(Action action, int y, int x) {
+    switch (action) {
+      case REVEAL:
+        return reveal(y, x);
+      case FLAG:
+        return flag(y, x);
+      case QUESTION:
+        return question(y, x);
+      case UNMARK:
+        return unmark(y, x);
+      default:
+        return chord(y, x);
+    }
+  }
+
+  /**
+   * Check the grid at the given coordinate. A grid marked as a mine or a question field cannot be
+   * checked. The first grid checked in a game never contains a mine: if it does, the mine is moved
+   * elsewhere first.
+   *
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move
+   * @see Grid#relocateMine()
+   * @see Grid#checkGrid()
+   */
+  public MoveResult reveal(int y, int x) {
+    lastRevealed = 0;
+    MoveResult invalid = validate(y, x);
+    if (invalid != null) return invalid;
+    Grid grid = board.getGrid(y, x);
+    if (grid.isMarkedMine() || grid.isMarkedQuestion()) return MoveResult.NOT_ALLOWED;
+
+    if (firstCheck) {
+      grid.relocateMine();
+      firstCheck = false;
+      persist();
+    }
+    moves++;
+    int revealed = grid.check();
+    if (revealed < 0) {
+      gameOver = true;
+      persist();
+      return MoveResult.LOST;
+    }
+    checks++;
+    lastRevealed = revealed;
+    if (board.getGridToCheck() == 0) {
+      gameOver = true;
+      persist();
+      return MoveResult.WON;
+    }
+    return MoveResult.OK;
+  }
+
+  /**
+   * Chord the checked grid at the given coordinate: if as many of its neighbors are marked as mine
+   * fields as it has adjacent mines, every other neighbor that is not checked yet is checked in
+   * one batch. A wrong mark makes the move check a mine, and the game is lost.
+   *
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move; {@link MoveResult#NOT_ALLOWED} if the grid is not checked,
+   *     if its marked neighbors do not match its adjacent mines, or if no neighbor is left to check
+   * @see Grid#chordGrid()
+   */
+  public MoveResult chord(int y, int x) {
+    lastRevealed = 0;
+    if (gameOver) return MoveResult.GAME_OVER;
+    if (!board.validateCoord(y, x)) return MoveResult.INVALID_COORDINATE;
+    Grid grid = board.getGrid(y, x);
+    if (!grid.isChecked() || grid.getNAdjMarkedMine() != grid.getNAdjMine()) {
+      return MoveResult.NOT_ALLOWED;
+    }
+
+    int revealed = grid.chord();
+    if (revealed == 0) return MoveResult.NOT_ALLOWED;
+    lastRevealed = Math.max(revealed, 0);
+    moves++;
+    if (revealed < 0) {
+      gameOver = true;
+      persist();
+      return MoveResult.LOST;
+    }
+    checks++;
+    if (board.getGridToCheck() == 0) {
+      gameOver = true;
+      persist();
+      return MoveResult.WON;
+    }
+    return MoveResult.OK;
+  }
+
+  /**
+   * Mark the grid at the given coordinate as a mine field, as long as fewer grids are marked than
+   * there are mines.
+   *
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move
+   * @see Grid#markAsMine()
+   */
+  public MoveResult flag(int y, int x) {
+    lastRevealed = 0;
+    MoveResult invalid = validate(y, x);
+    if (invalid != null) return invalid;
+    Grid grid = board.getGrid(y, x);
+    if (grid.isMarkedMine()) return MoveResult.NOT_ALLOWED;
+    if (nLeftMine == 0) return MoveResult.NO_MINE_LEFT;
+
+    grid.markAsMine();
+    nLeftMine--;
+    moves++;
+    persist();
+    return MoveResult.OK;
+  }
+
+  /**
+   * Mark the grid at the given coordinate as a question field.
+   *
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move
+   * @see Grid#markAsQuestion()
+   */
+  public MoveResult question(int y, int x) {
+    lastRevealed = 0;
+    MoveResult invalid = validate(y, x);
+    if (invalid != null) return invalid;
+    Grid grid = board.getGrid(y, x);
+    if (grid.isMarkedQuestion()) return MoveResult.NOT_ALLOWED;
+
+    if (grid.isMarkedMine()) nLeftMine++;
+    grid.markAsQuestion();
+    moves++;
+    persist();
+    return MoveResult.OK;
+  }
+
+  /**
+   * Remove the mark of the grid at the given coordinate.
+   *
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move
+   * @see Grid#unmark()
+   */
+  public MoveResult unmark(int y, int x) {
+    lastRevealed = 0;
+    MoveResult invalid = validate(y, x);
+    if (invalid != null) return invalid;
+    Grid grid = board.getGrid(y, x);
+    if (!grid.isMarkedMine() && !grid.isMarkedQuestion()) return MoveResult.NOT_ALLOWED;
+
+    if (grid.isMarkedMine()) nLeftMine++;
+    grid.unmark();
+    moves++;
+    persist();
+    return MoveResult.OK;
+  }
+
+  /** Write the state of the game through to {@link #file}, if the game is saved. */
+  private void persist() {
+    if (file != null) file.writeGame(nLeftMine, gameOver, firstCheck);
+  }
+
+  /**
+   * Check that a move can be applied to the grid at the given coordinate.
+   *
+   * @param y the y coordinate of the grid
+   * @param x the x coordinate of the grid
+   * @return the outcome rejecting the move, or <code>null</code> if the move can be applied
+   */
+  private MoveResult validate(int y, int x) {
+    if (gameOver) return MoveResult.GAME_OVER;
+    if (!board.validateCoord(y, x)) return MoveResult.INVALID_COORDINATE;
+    if (board.getGrid(y, x).isChecked()) return MoveResult.ALREADY_CHECKED;
+    return null;
+  }
+}
@@ -0,0 +1,379 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameServer hosts many Minesweeper games from one process over a line-based protocol. Every
+ * connection is served by its own thread, which is a virtual thread when the runtime provides them.
+ * Each request is one line, answered by one line unless stated otherwise:
+ *
+ * <ul>
+ *   <li><code>NEW height width mines</code> starts a game and answers <code>OK id</code>.
+ *   <li><code>NEW board</code> starts a game on the board named by a {@link BoardId}, so that
+ *       several players can play the same board, and answers the same way.
+ *   <li><code>ATTACH id</code> continues an existing game and answers <code>OK id</code>.
+ *   <li><code>y x option</code> selects a grid and an option, with the same coordinates and menu
+ *       numbers as the text-based {@link Game}, and answers the {@link GameEngine.MoveResult}
+ *       followed by the number of grids checked and the number of mines left. Option 1 on a
+ *       checked grid chords it, clearing all of its unmarked neighbors in one request.
+ *   <li><code>SHOW</code> answers with the board as printed by {@link Board#printBoard(boolean)},
+ *       followed by a line holding a single dot.
+ *   <li><code>FRAME</code> answers <code>BINARY length</code> followed by that many bytes
+ *       holding the whole board as encoded by {@link BoardCodec#encodeFull(boolean)}.
+ *   <li><code>DELTA</code> answers the same way with only the grids changed since the previous
+ *       <code>FRAME</code> or <code>DELTA</code>, as encoded by {@link
+ *       BoardCodec#encodeDelta(boolean)}.
+ *   <li><code>QUIT</code> closes the connection, leaving the game to be attached again.
+ * </ul>
+ *
+ * <p>Failed requests are answered by <code>ERROR</code> and a reason. Boards are at most {@link
+ * #MAX_SIDE} grids high and wide and {@link #MAX_GRIDS} grids large, and requests at most {@link
+ * #MAX_REQUEST} characters long, so one client cannot exhaust the memory of the server. Games are
+ * kept in a {@link SessionRegistry} and evicted once idle. Boards of the {@link #COMMON_SIZES} are
+ * taken from a {@link BoardPool}, so they start without waiting for generation; other sizes are
+ * generated on demand. Boards named by an ID are taken from a {@link BoardCache}, so a board
+ * shared by many players is generated once.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class GameServer implements AutoCloseable {
+  /** Height, width and number of mines of the boards generated ahead of time */
+  static final int[][] COMMON_SIZES = {{9, 9, 10}, {16, 16, 40}, {16, 30, 99}};
+  /** Largest height or width of a board */
+  static final int MAX_SIDE = 1024;
+  /** Largest number of grids of a board */
+  static final int MAX_GRIDS = 1 << 20;
+  /** Largest number of characters of a request */
+  static final int MAX_REQUEST = 256;
+
+  /** The socket accepting connections */
+  private final ServerSocket serverSocket;
+  /** The hosted games */
+  private final SessionRegistry sessions;
+  /** Boards generated ahead of time for the new games */
+  private final BoardPool boards = new BoardPool(BoardPool.RANDOM, COMMON_SIZES.length, 64, 1);
+  /** Boards named by an ID, kept for the next games asking for them */
+  private final BoardCache namedBoards = new BoardCache(64L << 20);
+  /** The executor running one thread per connection */
+  private final ExecutorService connections = newThreadPerTaskExecutor();
+
+  /**
+   * Initialize a server listening on the given port of the loopback address.
+   *
+   * @param port the port to listen on, or 0 to pick a free port
+   * @param idleTimeout the idle time in seconds after which a game is evicted
+   * @throws IOException if the port cannot be bound
+   */
+  public GameServer(int port, long idleTimeout) throws IOException {
+    this(new ServerSocket(port, 1024, InetAddress.getLoopbackAddress()), idleTimeout);
+  }
+
+  /**
+   * Initialize a server accepting connections from the given socket.
+   *
+   * @param serverSocket the bound socket accepting connections
+   * @param idleTimeout the idle time in seconds after which a game is evicted
+   */
+  public GameServer(ServerSocket serverSocket, long idleTimeout) {
+    this.serverSocket = serverSocket;
+    sessions = new SessionRegistry(idleTimeout, TimeUnit.SECONDS);
+    for (int[] size : COMMON_SIZES) boards.prefill(size[0], size[1], size[2]);
+  }
+
+  /**
+   * Get the port the server listens on.
+   *
+   * @return the local port
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Get the hosted games.
+   *
+   * @return the session registry
+   */
+  public SessionRegistry getSessions() {
+    return sessions;
+  }
+
+  /**
+   * Get the pool the boards of new games of the common sizes are taken from, with its hit and
+   * miss counts.
+   *
+   * @return the board pool
+   */
+  public BoardPool getBoards() {
+    return boards;
+  }
+
+  /** Start accepting connections in the background. */
+  public void start() {
+    connections.execute(this::acceptLoop);
+  }
+
+  /** Accept connections until the server socket is closed. */
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        connections.execute(() -> serve(socket));
+      } catch (IOException ioe) {
+        if (!serverSocket.isClosed()) System.err.println("Accept failed: " + ioe);
+      }
+    }
+  }
+
+  /**
+   * Answer the requests of one connection until it is closed or sends <code>QUIT</code>.
+   *
+   * @param socket the connection
+   */
+  private void serve(Socket socket) {
+    try (socket) {
+      socket.setTcpNoDelay(true);
+      BufferedReader in =
+          new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      OutputStream out = socket.getOutputStream();
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+      SessionRegistry.Session session = null;
+      String line;
+      while ((line = readRequest(in)) != null) {
+        String[] words = line.trim().split(" +");
+        String command = words[0].toUpperCase();
+        if (command.equals("QUIT")) break;
+
+        String answer;
+        try {
+          if (command.equals("NEW")) {
+            session = newSession(words);
+            answer = "OK " + session.id;
+          } else if (command.equals("ATTACH")) {
+            SessionRegistry.Session attached = words.length == 2 ? sessions.get(words[1]) : null;
+            if (attached != null) session = attached;
+            answer = attached == null ? "ERROR unknown session" : "OK " + attached.id;
+          } else if (session == null) {
+            answer = "ERROR no game";
+          } else if (sessions.get(session.id) == null) {
+            session = null;
+            answer = "ERROR game expired";
+          } else if (command.equals("SHOW")) {
+            writer.flush();
+            show(session, out);
+            answer = ".";
+          } else if (command.equals("FRAME") || command.equals("DELTA")) {
+            writer.flush();
+            encode(session, out, command.equals("FRAME"));
+            continue;
+          } else {
+            answer = move(session, line);
+          }
+        } catch (IllegalArgumentException iae) {
+          answer = "ERROR " + iae.getMessage();
+        }
+        writer.write(answer);
+        writer.write('\n');
+        writer.flush();
+      }
+    } catch (IOException ioe) {
+      // The client went away; its game stays until it is evicted.
+    }
+  }
+
+  /**
+   * Start a game from a <code>NEW height width mines</code> or <code>NEW board</code> request.
+   *
+   * @param words the words of the request
+   * @return the new session
+   * @throws IllegalArgumentException if the request does not describe a valid board
+   */
+  private SessionRegistry.Session newSession(String[] words) {
+    Board board;
+    if (words.length == 2) {
+      BoardId id = BoardId.parse(words[1]);
+      checkSize(id.getHeight(), id.getWidth());
+      board = namedBoards.take(id);
+    } else if (words.length == 4) {
+      int height = Integer.parseInt(words[1]);
+      int width = Integer.parseInt(words[2]);
+      int nMines = Integer.parseInt(words[3]);
+      checkSize(height, width);
+      board =
+          isCommon(height, width, nMines)
+              ? boards.take(height, width, nMines)
+              : BoardPool.RANDOM.generate(height, width, nMines);
+    } else {
+      throw new IllegalArgumentException("usage: NEW height width mines, or NEW board");
+    }
+    return sessions.create(new GameEngine(board));
+  }
+
+  /**
+   * Check that a board is small enough to be hosted.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @throws IllegalArgumentException if the board is too large
+   */
+  private static void checkSize(int height, int width) {
+    if (height > MAX_SIDE || width > MAX_SIDE || (long) height * width > MAX_GRIDS) {
+      throw new IllegalArgumentException("board too large");
+    }
+  }
+
+  /**
+   * Determine if a configuration is one of the {@link #COMMON_SIZES}.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   * @return <code>true</code> if the boards of the configuration are pooled
+   */
+  private static boolean isCommon(int height, int width, int nMines) {
+    for (int[] size : COMMON_SIZES) {
+      if (size[0] == height && size[1] == width && size[2] == nMines) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Read one request, without its line terminator.
+   *
+   * @param in the reader of the connection
+   * @return the request, or <code>null</code> at the end of the stream
+   * @throws IOException On input error, or if the request is longer than {@link #MAX_REQUEST}
+   */
+  private static String readRequest(BufferedReader in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int c = in.read(); c != '\n'; c = in.read()) {
+      if (c < 0) return line.length() == 0 ? null : line.toString();
+      if (c == '\r') continue;
+      if (line.length() == MAX_REQUEST) throw new IOException("Request too long");
+      line.append((char) c);
+    }
+    return line.toString();
+  }
+
+  /**
+   * Apply a <code>y x option</code> request to a game.
+   *
+   * @param session the game
+   * @param line the request
+   * @return the answer to the request
+   * @see Game#parseCoordinate(String)
+   * @see Game#selectAction(Grid, int)
+   */
+  private String move(SessionRegistry.Session session, String line) {
+    int[] coord = Game.parseCoordinate(line);
+    String[] words = line.trim().split(" +");
+    if (coord == null || words.length != 3) return "ERROR usage: y x option";
+    int option;
+    try {
+      option = Integer.parseInt(words[2]);
+    } catch (NumberFormatException nfe) {
+      return "ERROR invalid option";
+    }
+
+    GameEngine engine = session.engine;
+    synchronized (session) {
+      Board board = engine.getBoard();
+      GameEngine.Action action = GameEngine.Action.REVEAL;
+      if (board.validateCoord(coord)) {
+        action = Game.selectAction(board.getGrid(coord[0], coord[1]), option);
+        if (action == null) return "ERROR invalid option";
+      }
+      GameEngine.MoveResult result = engine.apply(action, coord[0], coord[1]);
+      return result + " " + engine.getLastRevealed() + " " + engine.getNLeftMine();
+    }
+  }
+
+  /**
+   * Write the board of a game to a connection.
+   *
+   * @param session the game
+   * @param out the stream of the connection
+   */
+  private void show(SessionRegistry.Session session, OutputStream out) {
+    synchronized (session) {
+      GameEngine engine = session.engine;
+      new BoardRenderer(engine.getBoard(), out).render(engine.isGameOver());
+    }
+  }
+
+  /**
+   * Write the board of a game to a connection as a binary message, preceded by a line giving its
+   * length.
+   *
+   * @param session the game
+   * @param out the stream of the connection
+   * @param full <code>true</code> for every grid; <code>false</code> for the changed grids only
+   * @throws IOException On output error
+   */
+  private void encode(SessionRegistry.Session session, OutputStream out, boolean full)
+      throws IOException {
+    synchronized (session) {
+      boolean showAnswer = session.engine.isGameOver();
+      ByteBuffer message =
+          full ? session.codec.encodeFull(showAnswer) : session.codec.encodeDelta(showAnswer);
+      out.write(("BINARY " + message.remaining() + "\n").getBytes(StandardCharsets.US_ASCII));
+      out.write(message.array(), message.arrayOffset() + message.position(), message.remaining());
+      out.flush();
+    }
+  }
+
+  /** Stop accepting connections and close the open ones. */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    connections.shutdownNow();
+    sessions.close();
+    boards.close();
+  }
+
+  /**
+   * Create an executor that runs every task on a new thread: a virtual thread when the runtime
+   * provides them, or a cached platform thread otherwise.
+   *
+   * @return the executor
+   */
+  static ExecutorService newThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(
+          task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    long idleTimeout = args.length > 1 ? Long.parseLong(args[1]) : 600;
+    Metrics.register();
+    GameServer server = new GameServer(port, idleTimeout);
+    System.out.println("Listening on port " + server.getPort());
+    server.acceptLoop();
+  }
+}
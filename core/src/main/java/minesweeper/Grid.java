@@ -0,0 +1,216 @@
+package minesweeper;
+
+/**
+ * Grid provides core functionality in the Minesweeper game related to each grid in the game
+ * board, such as saving information such as if the grid contains a mine, if the grid is already 
+ * checked by the user , if the grid is marked as either mine or question field by the user as 
+ * an user-friendly feature, and number of adjacent mine fields to print after the field is 
+ * checked. In addition, it contains methods that implement how grid checking spreads until the
+ * boundary is made of checked grids with adjacent mine fields. A Grid does not hold any state of
+ * its own: it is a lightweight view over the packed cell of its {@link Board}, so views can be
+ * created and discarded freely.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class Grid {
+  /** The board holding the state of the grid */
+  private final Board board;
+  /** Row-major index of the grid's packed cell in the board */
+  private final int index;
+
+  /**
+   * Initialize a view of the grid at the given y and x coordinates of the board.
+   *
+   * @param board the board holding the state of the grid
+   * @param y the y coordinate of the Grid instance in the game board
+   * @param x the x coordinate of the Grid instance in the game board
+   */
+  Grid(Board board, int y, int x) {
+    this.board = board;
+    index = y * board.getWidth() + x;
+  }
+
+  /**
+   * Check if the given bits are set in the grid's packed cell.
+   *
+   * @param bits the bits to check
+   * @return <code>true</code> if any of the bits is set
+   */
+  private boolean is(int bits) {
+    return (board.getCell(index) & bits) != 0;
+  }
+
+  /**
+   * Clear the bits in <code>clear</code>, then set the bits in <code>set</code> of the grid's
+   * packed cell.
+   *
+   * @param clear the bits to clear
+   * @param set the bits to set
+   */
+  private void update(int clear, int set) {
+    board.updateCell(index, clear, set);
+  }
+
+  /**
+   * Check if the grid is checked.
+   *
+   * @return <code>true</code> if the grid is checked;
+   *         <code>false</code> if the grid has not been checked
+   */
+  public boolean isChecked() {
+    return is(Board.CHECKED);
+  }
+
+  /**
+   * Check if the grid contains a mine.
+   *
+   * @return <code>true</code> if the grid contains a mine;
+   *         <code>false</code> if the grid does not contain a mine
+   */
+  public boolean isMine() {
+    return is(Board.MINE);
+  }
+
+  /**
+   * Check if the grid is marked by the user as a mine field.
+   *
+   * @return <code>true</code> if the grid is marked as a mine field; 
+   *         <code>false</code> if the grid is not marked as a mine field
+   */
+  public boolean isMarkedMine() {
+    return is(Board.MARKED_MINE);
+  }
+
+  /**
+   * Check if the grid is marked by the user as a question field.
+   *
+   * @return <code>true</code> if the grid is marked as a question field;
+   *         <code>false</code> if the grid is not marked as a question field
+   */
+  public boolean isMarkedQuestion() {
+    return is(Board.MARKED_QUESTION);
+  }
+
+  /**
+   * Get number of adjacent grids with mines.
+   *
+   * @return number of adjacent grids with mines
+   */
+  public int getNAdjMine() {
+    return board.getCell(index) & Board.N_ADJ_MINE;
+  }
+
+  /** Plant a mine to the grid and count it in the adjacent grids. */
+  public void plantMine() {
+    if (!isMine()) board.plantMine(index);
+  }
+
+  /**
+   * Move the mine of the grid, if any, to another grid chosen at random.
+   *
+   * @return <code>true</code> if the grid no longer contains a mine;
+   *         <code>false</code> if the mine could not be moved
+   * @see Board#relocateMine(int)
+   */
+  public boolean relocateMine() {
+    return board.relocateMine(index);
+  }
+
+  /**
+   * Count number of grids with mines within the 8 adjacent grids and store it in the lower bits of
+   * the grid's packed cell.
+   *
+   * @see Board#countAdjMines(int, int)
+   */
+  public void countAdjBomb() {
+    update(Board.N_ADJ_MINE, board.countAdjMines(index, board.getNeighborMask(index)));
+  }
+
+  /**
+   * Check the grid. If the grid contains a mine, the game is over. If the grid does not contain any
+   * neighboring grids with mines, all of the eight adjacent grids are automatically checked as
+   * well. The process repeats until a new boundary is made of checked grids that contain adjacent
+   * grids with mines. The cascade is driven by a worklist, so it does not recurse.
+   *
+   * @return <code>true</code> the grid does not contain a mine and is safely checked;
+   *         <code>false </code> the grid contains a mine and now the game is over
+   * @see Board#checkCell(int)
+   */
+  public boolean checkGrid() {
+    return check() >= 0;
+  }
+
+  /**
+   * Check the grid like {@link #checkGrid()}, counting the grids checked. The count is returned by
+   * the board rather than read from the grids left to check, which other threads may change at the
+   * same time on a {@link Board.RevealMode#CONCURRENT} board.
+   *
+   * @return the number of grids checked, including the cascade, or <code>-1</code> if the grid
+   *     contains a mine and now the game is over
+   */
+  int check() {
+    if (!Metrics.isEnabled()) return board.checkCell(index);
+    long start = System.nanoTime();
+    int revealed = board.checkCell(index);
+    Metrics.recordCascade(Math.max(revealed, 0), System.nanoTime() - start);
+    return revealed;
+  }
+
+  /**
+   * Chord the grid, which must be checked: check every adjacent grid that is neither checked nor
+   * marked as a mine field, each with its own cascade, in one batch.
+   *
+   * @return <code>true</code> the adjacent grids do not contain a mine and are safely checked;
+   *         <code>false </code> an adjacent grid contains a mine and now the game is over
+   * @see Board#chordCell(int)
+   */
+  public boolean chordGrid() {
+    return chord() >= 0;
+  }
+
+  /**
+   * Chord the grid like {@link #chordGrid()}, counting the grids checked.
+   *
+   * @return the number of grids checked, including their cascades, or <code>-1</code> if an
+   *     adjacent grid contains a mine and now the game is over
+   */
+  int chord() {
+    if (!Metrics.isEnabled()) return board.chordCell(index);
+    long start = System.nanoTime();
+    int revealed = board.chordCell(index);
+    Metrics.recordCascade(Math.max(revealed, 0), System.nanoTime() - start);
+    return revealed;
+  }
+
+  /**
+   * Get number of adjacent grids marked as a mine field.
+   *
+   * @return number of adjacent grids marked as a mine field
+   */
+  public int getNAdjMarkedMine() {
+    return board.countMarkedMines(index);
+  }
+
+  /**
+   * Mark the grid as containing a mine. If the grid is already marked as a question field, then
+   * the question mark is cleared.
+   */
+  public void markAsMine() {
+    update(Board.MARKED_QUESTION, Board.MARKED_MINE);
+  }
+
+  /**
+   * Mark the grid as an uncertain identity. If the grid is already marked as a mine field, then
+   * the mine mark is cleared.
+   */
+  public void markAsQuestion() {
+    update(Board.MARKED_MINE, Board.MARKED_QUESTION);
+  }
+
+  /** Unmark the grid from either mine or question field. */
+  public void unmark() {
+    update(Board.MARKED_MINE | Board.MARKED_QUESTION, 0);
+  }
+}
@@ -1,3 +1,5 @@
+package minesweeper;
+
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
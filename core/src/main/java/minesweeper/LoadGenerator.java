@@ -0,0 +1,128 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * LoadGenerator plays many concurrent games against a {@link GameServer} over the loopback
+ * interface and reports the latency of every move. Each client opens its own connection, starts an
+ * expert-size game and checks random grids, starting a new game whenever one ends. Usage:
+ * <code>java minesweeper.LoadGenerator [clients] [moves per client] [port]</code>; without a port,
+ * a server is started in the same process.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class LoadGenerator {
+  /** Height of the boards played */
+  private static final int HEIGHT = 16;
+  /** Width of the boards played */
+  private static final int WIDTH = 30;
+  /** Number of mines of the boards played */
+  private static final int MINES = 99;
+
+  /**
+   * Play the moves of one client and record the latency of each.
+   *
+   * @param port the port of the server
+   * @param seed the seed of the client's moves
+   * @param latencies the array receiving the latencies, in nanoseconds
+   * @param from the index of the client's first latency
+   * @param moves number of moves to play
+   * @throws IOException On connection error
+   */
+  private static void play(int port, long seed, long[] latencies, int from, int moves)
+      throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setTcpNoDelay(true);
+      BufferedReader in =
+          new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      OutputStream out = socket.getOutputStream();
+      SplittableRandom random = new SplittableRandom(seed);
+      send(out, "NEW " + HEIGHT + " " + WIDTH + " " + MINES);
+      in.readLine();
+      for (int i = 0; i < moves; i++) {
+        String move = (1 + random.nextInt(HEIGHT)) + " " + (1 + random.nextInt(WIDTH)) + " 1";
+        long start = System.nanoTime();
+        send(out, move);
+        String answer = in.readLine();
+        latencies[from + i] = System.nanoTime() - start;
+        if (answer == null) throw new IOException("Server closed the connection");
+        if (answer.startsWith("WON") || answer.startsWith("LOST")) {
+          send(out, "NEW " + HEIGHT + " " + WIDTH + " " + MINES);
+          in.readLine();
+        }
+      }
+      send(out, "QUIT");
+    }
+  }
+
+  /**
+   * Send one request line.
+   *
+   * @param out the stream of the connection
+   * @param line the request
+   * @throws IOException On connection error
+   */
+  private static void send(OutputStream out, String line) throws IOException {
+    out.write((line + '\n').getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    int moves = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    GameServer server = null;
+    int port;
+    if (args.length > 2) {
+      port = Integer.parseInt(args[2]);
+    } else {
+      server = new GameServer(0, 60);
+      server.start();
+      port = server.getPort();
+    }
+
+    long[] latencies = new long[clients * moves];
+    CountDownLatch done = new CountDownLatch(clients);
+    ExecutorService executor = GameServer.newThreadPerTaskExecutor();
+    long start = System.nanoTime();
+    for (int c = 0; c < clients; c++) {
+      int client = c;
+      executor.execute(
+          () -> {
+            try {
+              play(port, client, latencies, client * moves, moves);
+            } catch (IOException ioe) {
+              System.err.println("Client " + client + " failed: " + ioe);
+            } finally {
+              done.countDown();
+            }
+          });
+    }
+    done.await();
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+
+    Arrays.sort(latencies);
+    System.out.printf(
+        "%d clients, %,d moves in %.2f s (%,.0f moves/s)%n",
+        clients, latencies.length, elapsed / 1e9, latencies.length / (elapsed / 1e9));
+    System.out.printf(
+        "per-move latency: p50 %.1f us, p99 %.1f us, max %.1f us%n",
+        latencies[latencies.length / 2] / 1e3,
+        latencies[(int) (latencies.length * 0.99)] / 1e3,
+        latencies[latencies.length - 1] / 1e3);
+    if (server != null) server.close();
+  }
+}
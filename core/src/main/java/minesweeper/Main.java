@@ -1,3 +1,5 @@
+package minesweeper;
+
 import java.io.IOException;
 
 /**
@@ -13,6 +15,7 @@ import java.io.IOException;
  */
 public class Main {
   public static void main(String[] args) {
+    Metrics.register();
     Game game = new Game();
     try {
       game.initGame();
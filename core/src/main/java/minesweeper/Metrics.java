@@ -0,0 +1,518 @@
+package minesweeper;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Metrics records where the time of the game goes: the allocation of the grids of a {@link
+ * Board}, the planting of its mines, the size and duration of every cascade of checked grids, the
+ * time and bytes of every render of the board, and the latency of every turn of the text-based
+ * {@link Game}, not counting the time spent waiting for the user. Adjacent mine counts are kept up
+ * to date while mines are planted, so they have no phase of their own.
+ *
+ * <p>Counts and histograms are striped {@link LongAdder}s, so recording never takes a lock and
+ * threads recording at the same time do not contend on one cache line. Every value is also
+ * committed as a JFR event of the "Minesweeper" category, which a recording or a {@code
+ * jdk.jfr.consumer.RecordingStream} can subscribe to. Recording is off unless the system property
+ * <code>minesweeper.metrics</code> is <code>true</code> or it is enabled at run time, through
+ * {@link #setEnabled(boolean)} or the <code>Enabled</code> attribute of the MBean registered by
+ * {@link #register()}. While it is off, the instrumented code pays a single volatile read.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public final class Metrics {
+  /** Name of the MBean exposing the metrics */
+  public static final String OBJECT_NAME = "minesweeper:type=Metrics";
+
+  /** Determines if metrics are recorded */
+  private static volatile boolean enabled = Boolean.getBoolean("minesweeper.metrics");
+
+  /** Number of boards whose mines were planted */
+  private static final LongAdder boards = new LongAdder();
+  /** Number of random draws made while planting mines */
+  private static final LongAdder mineDraws = new LongAdder();
+  /** Time to allocate the grids of a board, in nanoseconds */
+  private static final Histogram allocationTime = new Histogram();
+  /** Time to plant the mines of a board, in nanoseconds */
+  private static final Histogram plantingTime = new Histogram();
+  /** Number of grids checked by a cascade */
+  private static final Histogram cascadeSize = new Histogram();
+  /** Time of a cascade, in nanoseconds */
+  private static final Histogram cascadeTime = new Histogram();
+  /** Number of bytes written by a render */
+  private static final Histogram renderBytes = new Histogram();
+  /** Time of a render, in nanoseconds */
+  private static final Histogram renderTime = new Histogram();
+  /** Time of a turn without the user input, in nanoseconds */
+  private static final Histogram turnTime = new Histogram();
+
+  private Metrics() {}
+
+  /**
+   * Determine if metrics are recorded. Instrumented code checks this before reading the clock.
+   *
+   * @return <code>true</code> if metrics are recorded
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Start or stop recording metrics. Values recorded so far are kept.
+   *
+   * @param enabled <code>true</code> to record metrics
+   */
+  public static void setEnabled(boolean enabled) {
+    Metrics.enabled = enabled;
+  }
+
+  /**
+   * Register the MBean exposing the metrics with the platform MBean server, unless it is
+   * registered already.
+   *
+   * @throws IllegalStateException if the MBean cannot be registered
+   */
+  public static void register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      // Registered by an earlier call.
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+    }
+  }
+
+  /** Forget every value recorded so far. */
+  public static void reset() {
+    boards.reset();
+    mineDraws.reset();
+    allocationTime.reset();
+    plantingTime.reset();
+    cascadeSize.reset();
+    cascadeTime.reset();
+    renderBytes.reset();
+    renderTime.reset();
+    turnTime.reset();
+  }
+
+  /**
+   * Record the allocation of the grids of a board.
+   *
+   * @param grids number of grids allocated
+   * @param nanos time of the allocation
+   */
+  static void recordAllocation(int grids, long nanos) {
+    allocationTime.record(nanos);
+    AllocationEvent event = new AllocationEvent();
+    if (event.isEnabled()) {
+      event.grids = grids;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  /**
+   * Record the planting of the mines of a board.
+   *
+   * @param nMines number of mines planted
+   * @param draws number of random draws made
+   * @param nanos time of the planting
+   */
+  static void recordPlanting(int nMines, int draws, long nanos) {
+    boards.increment();
+    mineDraws.add(draws);
+    plantingTime.record(nanos);
+    PlantingEvent event = new PlantingEvent();
+    if (event.isEnabled()) {
+      event.mines = nMines;
+      event.draws = draws;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  /**
+   * Record a cascade of checked grids.
+   *
+   * @param grids number of grids checked
+   * @param nanos time of the cascade
+   */
+  static void recordCascade(int grids, long nanos) {
+    cascadeSize.record(grids);
+    cascadeTime.record(nanos);
+    CascadeEvent event = new CascadeEvent();
+    if (event.isEnabled()) {
+      event.grids = grids;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  /**
+   * Record a render of the board.
+   *
+   * @param bytes number of bytes written
+   * @param nanos time of the render
+   */
+  static void recordRender(int bytes, long nanos) {
+    renderBytes.record(bytes);
+    renderTime.record(nanos);
+    RenderEvent event = new RenderEvent();
+    if (event.isEnabled()) {
+      event.bytes = bytes;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  /**
+   * Record a turn of the game.
+   *
+   * @param nanos time of the turn, without the time spent waiting for the user
+   */
+  static void recordTurn(long nanos) {
+    turnTime.record(nanos);
+    TurnEvent event = new TurnEvent();
+    if (event.isEnabled()) {
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  /**
+   * A histogram of non-negative values in power-of-two buckets: bucket <i>b</i> counts the values
+   * whose highest set bit is bit <i>b</i>, and bucket 0 also counts the zeros.
+   */
+  static final class Histogram {
+    /** Count of each bucket */
+    private final LongAdder[] buckets = new LongAdder[64];
+    /** Sum of the values */
+    private final LongAdder sum = new LongAdder();
+    /** Largest value */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private Histogram() {
+      for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value the value, negative values counting as zero
+     */
+    void record(long value) {
+      value = Math.max(0, value);
+      buckets[63 - Long.numberOfLeadingZeros(value | 1)].increment();
+      sum.add(value);
+      max.accumulate(value);
+    }
+
+    /** Forget every value recorded so far. */
+    private void reset() {
+      for (LongAdder bucket : buckets) bucket.reset();
+      sum.reset();
+      max.reset();
+    }
+
+    /**
+     * Take a summary of the values recorded so far. Values recorded while the summary is taken
+     * may be partly included.
+     *
+     * @return the summary
+     */
+    Summary summarize() {
+      long[] counts = new long[buckets.length];
+      long count = 0;
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = buckets[i].sum();
+        count += counts[i];
+      }
+      long maximum = max.get();
+      return new Summary(
+          count,
+          sum.sum(),
+          maximum,
+          percentile(counts, count, 0.5, maximum),
+          percentile(counts, count, 0.9, maximum),
+          percentile(counts, count, 0.99, maximum));
+    }
+
+    /**
+     * Estimate a percentile as the upper bound of the bucket holding it, capped by the largest
+     * value.
+     *
+     * @param counts the count of each bucket
+     * @param count the number of values
+     * @param fraction the fraction of the values at or below the percentile
+     * @param maximum the largest value
+     * @return the estimate, or 0 if there are no values
+     */
+    private static long percentile(long[] counts, long count, double fraction, long maximum) {
+      long rank = (long) Math.ceil(count * fraction);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) return Math.min(maximum, i == 63 ? maximum : (2L << i) - 1);
+      }
+      return 0;
+    }
+  }
+
+  /** The values of a histogram at one point in time. */
+  public static final class Summary {
+    private final long count;
+    private final long sum;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+
+    private Summary(long count, long sum, long max, long p50, long p90, long p99) {
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return number of values
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Get the sum of the values.
+     *
+     * @return sum of the values
+     */
+    public long getSum() {
+      return sum;
+    }
+
+    /**
+     * Get the largest value.
+     *
+     * @return largest value, or 0 if there are no values
+     */
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Get the mean of the values.
+     *
+     * @return mean of the values, or 0 if there are no values
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get the estimated median of the values.
+     *
+     * @return estimated median
+     */
+    public long getP50() {
+      return p50;
+    }
+
+    /**
+     * Get the estimated 90th percentile of the values.
+     *
+     * @return estimated 90th percentile
+     */
+    public long getP90() {
+      return p90;
+    }
+
+    /**
+     * Get the estimated 99th percentile of the values.
+     *
+     * @return estimated 99th percentile
+     */
+    public long getP99() {
+      return p99;
+    }
+  }
+
+  /** The metrics as exposed through JMX. Times are in nanoseconds. */
+  public interface MetricsMXBean {
+    /** Determine if metrics are recorded. */
+    boolean isEnabled();
+
+    /** Start or stop recording metrics. */
+    void setEnabled(boolean enabled);
+
+    /** Number of boards whose mines were planted. */
+    long getBoards();
+
+    /** Number of random draws made while planting mines. */
+    long getMineDraws();
+
+    /** Time to allocate the grids of a board. */
+    Summary getAllocationTime();
+
+    /** Time to plant the mines of a board. */
+    Summary getPlantingTime();
+
+    /** Number of grids checked by a cascade. */
+    Summary getCascadeSize();
+
+    /** Time of a cascade. */
+    Summary getCascadeTime();
+
+    /** Number of bytes written by a render of the board. */
+    Summary getRenderBytes();
+
+    /** Time of a render of the board. */
+    Summary getRenderTime();
+
+    /** Time of a turn of the text-based game, without the user input. */
+    Summary getTurnTime();
+
+    /** Forget every value recorded so far. */
+    void reset();
+  }
+
+  /** The MBean reading the metrics. */
+  private static final class MBean implements MetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+      return Metrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      Metrics.setEnabled(enabled);
+    }
+
+    @Override
+    public long getBoards() {
+      return boards.sum();
+    }
+
+    @Override
+    public long getMineDraws() {
+      return mineDraws.sum();
+    }
+
+    @Override
+    public Summary getAllocationTime() {
+      return allocationTime.summarize();
+    }
+
+    @Override
+    public Summary getPlantingTime() {
+      return plantingTime.summarize();
+    }
+
+    @Override
+    public Summary getCascadeSize() {
+      return cascadeSize.summarize();
+    }
+
+    @Override
+    public Summary getCascadeTime() {
+      return cascadeTime.summarize();
+    }
+
+    @Override
+    public Summary getRenderBytes() {
+      return renderBytes.summarize();
+    }
+
+    @Override
+    public Summary getRenderTime() {
+      return renderTime.summarize();
+    }
+
+    @Override
+    public Summary getTurnTime() {
+      return turnTime.summarize();
+    }
+
+    @Override
+    public void reset() {
+      Metrics.reset();
+    }
+  }
+
+  @Name("minesweeper.Allocation")
+  @Label("Board Allocation")
+  @Category("Minesweeper")
+  static final class AllocationEvent extends Event {
+    @Label("Grids")
+    int grids;
+
+    @Label("Time")
+    @Timespan
+    long time;
+  }
+
+  @Name("minesweeper.Planting")
+  @Label("Mine Planting")
+  @Category("Minesweeper")
+  static final class PlantingEvent extends Event {
+    @Label("Mines")
+    int mines;
+
+    @Label("Random Draws")
+    int draws;
+
+    @Label("Time")
+    @Timespan
+    long time;
+  }
+
+  @Name("minesweeper.Cascade")
+  @Label("Cascade")
+  @Category("Minesweeper")
+  static final class CascadeEvent extends Event {
+    @Label("Grids")
+    int grids;
+
+    @Label("Time")
+    @Timespan
+    long time;
+  }
+
+  @Name("minesweeper.Render")
+  @Label("Render")
+  @Category("Minesweeper")
+  static final class RenderEvent extends Event {
+    @Label("Bytes")
+    @DataAmount
+    int bytes;
+
+    @Label("Time")
+    @Timespan
+    long time;
+  }
+
+  @Name("minesweeper.Turn")
+  @Label("Turn")
+  @Category("Minesweeper")
+  static final class TurnEvent extends Event {
+    @Label("Time")
+    @Timespan
+    long time;
+  }
+}
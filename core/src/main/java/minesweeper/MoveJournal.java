@@ -0,0 +1,444 @@
+package minesweeper;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MoveJournal plays a game while appending every move that changes it to a binary journal, so that
+ * the game can be recovered after a crash and replayed for an audit. The journal starts with a
+ * header holding the {@link BoardId} of the board, from which the board is generated again
+ * identically. Each move then takes one 8-byte record: the row-major index of the
+ * grid and the ordinal of the {@link GameEngine.Action}. Moves rejected by the engine change
+ * nothing and are not recorded.
+ *
+ * <p>Records are buffered and written to the file in batches, and the file is forced to the storage
+ * device once every given number of moves rather than on every move. A crash therefore loses at
+ * most the moves of the last unfinished batch, and a record torn by the crash is ignored.
+ *
+ * <p>Every given number of moves, a snapshot of the game is saved next to the journal with {@link
+ * BoardFile#snapshot(Path, GameEngine)}, named after the number of moves it covers. Replay starts
+ * from the latest snapshot and only applies the moves recorded after it. Older snapshots are
+ * deleted once a newer one is complete, while the journal itself is kept whole for audits.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class MoveJournal implements Closeable {
+  /** Magic number identifying a journal, "MSJL" */
+  private static final int MAGIC = 0x4D534A4C;
+  /** Version of the file format */
+  private static final int VERSION = 2;
+  /** Size of the header, after which the records are stored */
+  private static final int HEADER = 32;
+  /** Size of a record */
+  private static final int RECORD = 8;
+  /** Size of the chunks in which records are read during replay */
+  private static final int CHUNK = 1 << 16;
+  /** Suffix of the names of snapshots */
+  private static final String SNAPSHOT = ".snapshot";
+  /** The actions, by ordinal */
+  private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+  /** The path of the journal */
+  private final Path path;
+  /** The channel of the journal, positioned at its end */
+  private final FileChannel channel;
+  /** The game played */
+  private final GameEngine engine;
+  /** Number of moves between two forces of the journal to the storage device */
+  private final int syncInterval;
+  /** Number of moves between two snapshots, or 0 to never take snapshots */
+  private final int snapshotInterval;
+  /** Records not written to the channel yet */
+  private final ByteBuffer pending;
+  /** Number of moves recorded */
+  private long moves;
+  /** Number of moves recorded since the journal was last forced to the storage device */
+  private int unsynced;
+  /** Number of moves covered by the latest snapshot */
+  private long snapshotMoves;
+
+  /**
+   * Initialize a journal over an open channel.
+   *
+   * @param path the path of the journal
+   * @param channel the channel of the journal, positioned at its end
+   * @param engine the game played
+   * @param moves number of moves already recorded
+   * @param snapshotMoves number of moves covered by the latest snapshot
+   * @param syncInterval number of moves between two forces to the storage device
+   * @param snapshotInterval number of moves between two snapshots, or 0 for none
+   */
+  private MoveJournal(
+      Path path,
+      FileChannel channel,
+      GameEngine engine,
+      long moves,
+      long snapshotMoves,
+      int syncInterval,
+      int snapshotInterval) {
+    this.path = path;
+    this.channel = channel;
+    this.engine = engine;
+    this.moves = moves;
+    this.snapshotMoves = snapshotMoves;
+    this.syncInterval = syncInterval;
+    this.snapshotInterval = snapshotInterval;
+    pending = ByteBuffer.allocateDirect(syncInterval * RECORD);
+  }
+
+  /**
+   * Start a new game and a new journal recording it, replacing any previous journal and snapshots
+   * at the same path.
+   *
+   * @param path the path of the journal
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines number of mines of the board
+   * @param seed the seed placing the mines
+   * @param syncInterval number of moves between two forces to the storage device
+   * @param snapshotInterval number of moves between two snapshots, or 0 for none
+   * @return the open journal, whose game is available from {@link #getEngine()}
+   * @throws IOException On output error
+   * @throws IllegalArgumentException if the board or an interval is invalid
+   */
+  public static MoveJournal create(
+      Path path,
+      int height,
+      int width,
+      int nMines,
+      long seed,
+      int syncInterval,
+      int snapshotInterval)
+      throws IOException {
+    return create(
+        path, new BoardId(height, width, nMines, seed), syncInterval, snapshotInterval);
+  }
+
+  /**
+   * Start a new game on the board of an ID and a new journal recording it, replacing any previous
+   * journal and snapshots at the same path.
+   *
+   * @param path the path of the journal
+   * @param id the ID of the board
+   * @param syncInterval number of moves between two forces to the storage device
+   * @param snapshotInterval number of moves between two snapshots, or 0 for none
+   * @return the open journal, whose game is available from {@link #getEngine()}
+   * @throws IOException On output error
+   * @throws IllegalArgumentException if an interval is invalid
+   */
+  public static MoveJournal create(Path path, BoardId id, int syncInterval, int snapshotInterval)
+      throws IOException {
+    validateIntervals(syncInterval, snapshotInterval);
+    GameEngine engine = new GameEngine(id.generate());
+    deleteSnapshots(path, Long.MAX_VALUE);
+
+    FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      header.putInt(MAGIC).putInt(VERSION).putInt(id.getHeight()).putInt(id.getWidth());
+      header.putInt(id.getNMines()).putInt(0).putLong(id.getSeed()).flip();
+      while (header.hasRemaining()) channel.write(header);
+      channel.force(true);
+      return new MoveJournal(path, channel, engine, 0, 0, syncInterval, snapshotInterval);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Recover the game recorded by a journal, for example after a crash, and continue recording it.
+   * A record torn by the crash is discarded.
+   *
+   * @param path the path of the journal
+   * @param syncInterval number of moves between two forces to the storage device
+   * @param snapshotInterval number of moves between two snapshots, or 0 for none
+   * @return the open journal, whose game is available from {@link #getEngine()}
+   * @throws IOException On input error, or if the file is not a journal
+   * @throws IllegalArgumentException if an interval is invalid
+   */
+  public static MoveJournal open(Path path, int syncInterval, int snapshotInterval)
+      throws IOException {
+    validateIntervals(syncInterval, snapshotInterval);
+    FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long[] replayed = new long[2];
+      GameEngine engine = replay(channel, path, replayed);
+      channel.truncate(HEADER + replayed[0] * RECORD);
+      channel.position(HEADER + replayed[0] * RECORD);
+      return new MoveJournal(
+          path, channel, engine, replayed[0], replayed[1], syncInterval, snapshotInterval);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Replay the game recorded by a journal without changing the journal.
+   *
+   * @param path the path of the journal
+   * @return the game in the state after the last recorded move
+   * @throws IOException On input error, or if the file is not a journal
+   */
+  public static GameEngine replay(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return replay(channel, path, new long[2]);
+    }
+  }
+
+  /**
+   * Replay the game recorded by a journal, starting from its latest snapshot if there is one.
+   *
+   * @param channel the channel of the journal
+   * @param path the path of the journal
+   * @param replayed receives the number of complete records and the number of moves covered by
+   *     the snapshot replay started from
+   * @return the game in the state after the last recorded move
+   * @throws IOException On input error, or if the file is not a journal
+   */
+  private static GameEngine replay(FileChannel channel, Path path, long[] replayed)
+      throws IOException {
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER);
+    while (header.hasRemaining() && channel.read(header, header.position()) > 0) continue;
+    if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      throw new IOException("Not a move journal: " + path);
+    }
+    int height = header.getInt(8);
+    int width = header.getInt(12);
+    int nMines = header.getInt(16);
+    long moves = (size - HEADER) / RECORD;
+
+    long from = latestSnapshot(path, moves);
+    GameEngine engine;
+    if (from > 0) {
+      engine = BoardFile.load(snapshotPath(path, from));
+      Board board = engine.getBoard();
+      if (board.getHeight() != height || board.getWidth() != width) {
+        throw new IOException("Snapshot does not match its journal: " + path);
+      }
+    } else {
+      try {
+        engine = new GameEngine(new BoardId(height, width, nMines, header.getLong(24)).generate());
+      } catch (IllegalArgumentException iae) {
+        throw new IOException("Corrupted move journal: " + path, iae);
+      }
+    }
+
+    ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK);
+    long position = HEADER + from * RECORD;
+    for (long i = from; i < moves; ) {
+      int read = channel.read(chunk, position);
+      if (read < 0) throw new EOFException("Move journal truncated while replaying: " + path);
+      position += read;
+      chunk.flip();
+      for (; chunk.remaining() >= RECORD && i < moves; i++) {
+        long record = chunk.getLong();
+        int index = (int) (record >>> 8);
+        int action = (int) record & 0xFF;
+        if (action >= ACTIONS.length) throw new IOException("Corrupted move journal: " + path);
+        engine.apply(ACTIONS[action], index / width, index % width);
+      }
+      chunk.compact();
+    }
+    replayed[0] = moves;
+    replayed[1] = from;
+    return engine;
+  }
+
+  /**
+   * Get the game played.
+   *
+   * @return the game
+   */
+  public GameEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Get the number of moves recorded.
+   *
+   * @return number of moves
+   */
+  public long getMoves() {
+    return moves;
+  }
+
+  /**
+   * Apply an action to the grid at the given coordinate and record the move if it changed the
+   * game.
+   *
+   * @param action the action to take
+   * @param y the y coordinate of the grid, starting from 0
+   * @param x the x coordinate of the grid, starting from 0
+   * @return the outcome of the move
+   * @throws IOException On output error
+   * @see GameEngine#apply(GameEngine.Action, int, int)
+   */
+  public GameEngine.MoveResult apply(GameEngine.Action action, int y, int x) throws IOException {
+    GameEngine.MoveResult result = engine.apply(action, y, x);
+    switch (result) {
+      case OK:
+      case WON:
+      case LOST:
+        break;
+      default:
+        return result;
+    }
+
+    int index = y * engine.getBoard().getWidth() + x;
+    pending.putLong(((long) index << 8) | action.ordinal());
+    moves++;
+    if (++unsynced == syncInterval) sync();
+    if (snapshotInterval > 0 && moves - snapshotMoves >= snapshotInterval) snapshot();
+    return result;
+  }
+
+  /**
+   * Write the buffered records to the journal and force the journal to the storage device.
+   *
+   * @throws IOException On output error
+   */
+  public void sync() throws IOException {
+    pending.flip();
+    while (pending.hasRemaining()) channel.write(pending);
+    pending.clear();
+    channel.force(false);
+    unsynced = 0;
+  }
+
+  /**
+   * Save a snapshot of the game covering every move recorded so far, then delete the older
+   * snapshots. The journal is synced first, so a snapshot never covers moves missing from the
+   * journal. No snapshot is taken before the first grid is checked, since the first check may move
+   * a mine at random and is only reproducible by replaying from the seed.
+   *
+   * @throws IOException On output error
+   */
+  public void snapshot() throws IOException {
+    if (engine.isFirstCheck()) return;
+    sync();
+    Path temporary = path.resolveSibling(path.getFileName() + SNAPSHOT + ".tmp");
+    BoardFile.snapshot(temporary, engine);
+    Files.move(temporary, snapshotPath(path, moves), StandardCopyOption.ATOMIC_MOVE);
+    deleteSnapshots(path, moves);
+    snapshotMoves = moves;
+  }
+
+  /**
+   * Sync the buffered records and close the journal.
+   *
+   * @throws IOException On output error
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Get the path of the snapshot covering the given number of moves of a journal.
+   *
+   * @param path the path of the journal
+   * @param moves number of moves covered
+   * @return path of the snapshot
+   */
+  private static Path snapshotPath(Path path, long moves) {
+    return path.resolveSibling(path.getFileName() + "." + moves + SNAPSHOT);
+  }
+
+  /**
+   * Get the number of moves covered by the latest usable snapshot of a journal.
+   *
+   * @param path the path of the journal
+   * @param moves number of moves recorded by the journal
+   * @return number of moves covered by the snapshot, or 0 if there is none
+   * @throws IOException On input error
+   */
+  private static long latestSnapshot(Path path, long moves) throws IOException {
+    long latest = 0;
+    for (long covered : snapshots(path)) {
+      if (covered <= moves) latest = Math.max(latest, covered);
+    }
+    return latest;
+  }
+
+  /**
+   * Delete the snapshots of a journal covering fewer moves than the given number.
+   *
+   * @param path the path of the journal
+   * @param moves number of moves covered by the snapshot to keep
+   * @throws IOException On output error
+   */
+  private static void deleteSnapshots(Path path, long moves) throws IOException {
+    for (long covered : snapshots(path)) {
+      if (covered < moves) Files.deleteIfExists(snapshotPath(path, covered));
+    }
+  }
+
+  /**
+   * List the snapshots of a journal.
+   *
+   * @param path the path of the journal
+   * @return number of moves covered by each snapshot
+   * @throws IOException On input error
+   */
+  private static long[] snapshots(Path path) throws IOException {
+    String prefix = path.getFileName() + ".";
+    Path directory = path.toAbsolutePath().getParent();
+    long[] snapshots = new long[0];
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+      for (Path snapshot : stream) {
+        String name = snapshot.getFileName().toString();
+        if (!name.endsWith(SNAPSHOT)) continue;
+        long covered;
+        try {
+          covered =
+              Long.parseLong(name.substring(prefix.length(), name.length() - SNAPSHOT.length()));
+        } catch (NumberFormatException nfe) {
+          continue;
+        }
+        snapshots = Arrays.copyOf(snapshots, snapshots.length + 1);
+        snapshots[snapshots.length - 1] = covered;
+      }
+    }
+    return snapshots;
+  }
+
+  /**
+   * Validate the sync and snapshot intervals.
+   *
+   * @param syncInterval number of moves between two forces to the storage device
+   * @param snapshotInterval number of moves between two snapshots, or 0 for none
+   * @throws IllegalArgumentException if an interval is invalid
+   */
+  private static void validateIntervals(int syncInterval, int snapshotInterval) {
+    if (syncInterval < 1) {
+      throw new IllegalArgumentException("Invalid sync interval: " + syncInterval);
+    }
+    if (snapshotInterval < 0) {
+      throw new IllegalArgumentException("Invalid snapshot interval: " + snapshotInterval);
+    }
+  }
+}
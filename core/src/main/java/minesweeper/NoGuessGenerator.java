@@ -0,0 +1,329 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NoGuessGenerator generates boards that can be won from their first check without ever guessing.
+ * Every board starts with its middle grid checked, and no mine is planted around it, so the first
+ * check opens a cascade. A candidate board is verified by playing it with {@link
+ * Solver#solveWithoutGuessing(GameEngine, int, int)}, which stops at the first frontier it cannot
+ * deduce. Instead of discarding the candidate, the mines next to that frontier are moved into the
+ * unexplored part of the board, one at a time, and the board is verified again; only a candidate
+ * that is still stuck after {@link #MAX_REPAIRS} repairs is discarded.
+ *
+ * <p>Boards denser than {@link #MAX_DENSITY} outside the first check's cascade are rejected up
+ * front, since they can rarely be won without guessing, and a board not found within {@link
+ * #TIME_BUDGET_NANOS} is given up on, so that generation always ends.
+ *
+ * <p>Since verification is what a board costs, several candidates are searched in parallel and
+ * the first verified one is taken. The searching threads are daemons and stop after {@link
+ * BoardPool#IDLE_SECONDS} without work. {@link Game} pools boards of the common sizes with
+ * {@link #generate(int, int, int)} as the source of a {@link BoardPool}, which generates them
+ * ahead of time, so that a game can start without waiting for one.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class NoGuessGenerator implements AutoCloseable {
+  /** Number of repairs of a candidate board after which it is discarded */
+  private static final int MAX_REPAIRS = 64;
+  /** Number of random grids tried when looking for an unexplored grid to move a mine to */
+  private static final int TARGET_TRIES = 64;
+  /** Largest share of mines among the grids outside the first checked grid and its neighbors */
+  static final double MAX_DENSITY = 0.45;
+  /** Time after which the search for a board is given up, in nanoseconds */
+  static final long TIME_BUDGET_NANOS = 5_000_000_000L;
+
+  /** Threads searching candidate boards */
+  private final ExecutorService workers;
+  /** Number of candidate boards searched in parallel */
+  private final int parallelism;
+  /** Source of the seeds of the candidate searches */
+  private final SplittableRandom seeds;
+  /** Number of candidate boards generated */
+  private final LongAdder candidates = new LongAdder();
+  /** Number of mines moved to repair candidate boards */
+  private final LongAdder repairs = new LongAdder();
+
+  /**
+   * Initialize a generator searching as many candidates in parallel as there are processors.
+   *
+   * @param seed the seed of the candidate searches
+   */
+  public NoGuessGenerator(long seed) {
+    this(Runtime.getRuntime().availableProcessors(), seed);
+  }
+
+  /**
+   * Initialize a generator searching the given number of candidates in parallel.
+   *
+   * @param parallelism the number of candidate boards searched in parallel
+   * @param seed the seed of the candidate searches
+   */
+  public NoGuessGenerator(int parallelism, long seed) {
+    if (parallelism <= 0) throw new IllegalArgumentException("Parallelism must be positive");
+    this.parallelism = parallelism;
+    seeds = new SplittableRandom(seed);
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            parallelism,
+            parallelism,
+            BoardPool.IDLE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            task -> {
+              Thread thread = new Thread(task, "no-guess-worker");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    workers = executor;
+  }
+
+  /**
+   * Generate a board that can be won without guessing from its first check, searching several
+   * candidates in parallel and taking the first verified one.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   * @return the board, with its first grid checked
+   * @throws IllegalArgumentException if the board is too dense to be won without guessing, or if
+   *     no such board was found within {@link #TIME_BUDGET_NANOS}
+   */
+  public Board generate(int height, int width, int nMines) {
+    validate(height, width, nMines);
+    long deadline = System.nanoTime() + TIME_BUDGET_NANOS;
+    List<Callable<Board>> searches = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      long seed;
+      synchronized (seeds) {
+        seed = seeds.nextLong();
+      }
+      searches.add(() -> search(height, width, nMines, new SplittableRandom(seed), deadline));
+    }
+    try {
+      return workers.invokeAny(searches);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while generating a board", ie);
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof IllegalArgumentException) {
+        throw (IllegalArgumentException) ee.getCause();
+      }
+      throw new IllegalStateException("Board generation failed", ee.getCause());
+    }
+  }
+
+  /**
+   * Get the number of candidate boards generated so far, verified or not.
+   *
+   * @return number of candidates
+   */
+  public long getCandidates() {
+    return candidates.sum();
+  }
+
+  /**
+   * Get the number of mines moved so far to repair candidate boards.
+   *
+   * @return number of repairs
+   */
+  public long getRepairs() {
+    return repairs.sum();
+  }
+
+  /** Stop the threads searching candidate boards. Boards already generated are not affected. */
+  @Override
+  public void close() {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Check that a configuration is valid and that its mines fit outside the first checked grid and
+   * its neighbors, no denser than {@link #MAX_DENSITY}.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   */
+  private static void validate(int height, int width, int nMines) {
+    if (height <= 0 || width <= 0) throw new IllegalArgumentException("Invalid board size");
+    int opening = Math.min(height, 3) * Math.min(width, 3);
+    if (nMines < 0 || nMines > ((long) height * width - opening) * MAX_DENSITY) {
+      throw new IllegalArgumentException("Too many mines to be won without guessing");
+    }
+  }
+
+  /**
+   * Generate candidate boards until one is verified, until the search is cancelled because another
+   * search found one first, or until the deadline passes.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   * @param random the random generator of the search
+   * @param deadline the {@link System#nanoTime()} after which the search is given up
+   * @return the verified board, with its first grid checked
+   * @throws InterruptedException if the search is cancelled
+   * @throws IllegalArgumentException if the deadline passed
+   */
+  private Board search(int height, int width, int nMines, SplittableRandom random, long deadline)
+      throws InterruptedException {
+    Solver solver = new Solver();
+    while (!Thread.currentThread().isInterrupted()) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new IllegalArgumentException("No board that can be won without guessing was found");
+      }
+      Board board = candidate(height, width, nMines, random, solver);
+      if (board != null) return board;
+    }
+    throw new InterruptedException();
+  }
+
+  /**
+   * Generate a candidate board and repair it until it is verified.
+   *
+   * @param height the height of the board
+   * @param width the width of the board
+   * @param nMines the number of mines of the board
+   * @param random the random generator of the search
+   * @param solver the solver verifying the board
+   * @return the verified board, with its first grid checked, or <code>null</code> if it could not
+   *     be repaired
+   */
+  private Board candidate(
+      int height, int width, int nMines, SplittableRandom random, Solver solver) {
+    candidates.increment();
+    Board board = new Board(height, width, nMines, random);
+    board.initBoard();
+    int startY = height / 2;
+    int startX = width / 2;
+    int start = startY * width + startX;
+    clearOpening(board, start, random);
+
+    for (int repair = 0; ; repair++) {
+      if (solver.solveWithoutGuessing(new GameEngine(board), startY, startX)) {
+        board.clearChecks();
+        new GameEngine(board).reveal(startY, startX);
+        return board;
+      }
+      if (repair == MAX_REPAIRS || Thread.currentThread().isInterrupted()) return null;
+      if (!repair(board, solver.getFrontier(), start, random)) return null;
+      board.clearChecks();
+    }
+  }
+
+  /**
+   * Move every mine out of the first checked grid and its neighbors.
+   *
+   * @param board the board
+   * @param start the row-major index of the first checked grid
+   * @param random the random generator of the search
+   */
+  private static void clearOpening(Board board, int start, SplittableRandom random) {
+    int size = board.size();
+    int mask = board.getNeighborMask(start);
+    for (int direction = -1; direction < 8; direction++) {
+      if (direction >= 0 && (mask & (1 << direction)) == 0) continue;
+      int index = direction < 0 ? start : board.getNeighbor(start, direction);
+      if ((board.getCell(index) & Board.MINE) == 0) continue;
+      int target;
+      do {
+        target = random.nextInt(size);
+      } while ((board.getCell(target) & Board.MINE) != 0 || isOpening(board, target, start));
+      board.moveMine(index, target);
+    }
+  }
+
+  /**
+   * Repair a board on which the solver got stuck by moving one mine next to the frontier it got
+   * stuck on to a grid that is neither checked nor next to a checked grid.
+   *
+   * @param board the board, with the grids checked by the solver
+   * @param frontier the unknown grids next to a checked grid
+   * @param start the row-major index of the first checked grid
+   * @param random the random generator of the search
+   * @return <code>true</code> if a mine was moved; <code>false</code> if none could be
+   */
+  private boolean repair(Board board, int[] frontier, int start, SplittableRandom random) {
+    if (frontier.length == 0) return false;
+    int target = unexplored(board, start, random);
+    if (target < 0) return false;
+    int offset = random.nextInt(frontier.length);
+    for (int i = 0; i < frontier.length; i++) {
+      int grid = frontier[(offset + i) % frontier.length];
+      if ((board.getCell(grid) & Board.MINE) != 0) {
+        board.moveMine(grid, target);
+        repairs.increment();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find a grid without a mine that is neither checked nor next to a checked grid, trying random
+   * grids first and scanning the board if none of them fits.
+   *
+   * @param board the board, with the grids checked by the solver
+   * @param start the row-major index of the first checked grid
+   * @param random the random generator of the search
+   * @return the row-major index of the grid, or <code>-1</code> if there is none
+   */
+  private static int unexplored(Board board, int start, SplittableRandom random) {
+    int size = board.size();
+    for (int i = 0; i < TARGET_TRIES; i++) {
+      int grid = random.nextInt(size);
+      if (isUnexplored(board, grid, start)) return grid;
+    }
+    int offset = random.nextInt(size);
+    for (int i = 0; i < size; i++) {
+      int grid = (offset + i) % size;
+      if (isUnexplored(board, grid, start)) return grid;
+    }
+    return -1;
+  }
+
+  /**
+   * Determine if a grid can take a mine moved by a repair.
+   *
+   * @param board the board, with the grids checked by the solver
+   * @param index the row-major index of the grid
+   * @param start the row-major index of the first checked grid
+   * @return <code>true</code> if the grid has no mine and neither it nor its neighbors are checked
+   */
+  private static boolean isUnexplored(Board board, int index, int start) {
+    if ((board.getCell(index) & (Board.MINE | Board.CHECKED)) != 0) return false;
+    if (isOpening(board, index, start)) return false;
+    for (int m = board.getNeighborMask(index); m != 0; m &= m - 1) {
+      int neighbor = board.getNeighbor(index, Integer.numberOfTrailingZeros(m));
+      if ((board.getCell(neighbor) & Board.CHECKED) != 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Determine if a grid is the first checked grid or one of its neighbors.
+   *
+   * @param board the board
+   * @param index the row-major index of the grid
+   * @param start the row-major index of the first checked grid
+   * @return <code>true</code> if the grid must stay without a mine
+   */
+  private static boolean isOpening(Board board, int index, int start) {
+    int width = board.getWidth();
+    return Math.abs(index / width - start / width) <= 1
+        && Math.abs(index % width - start % width) <= 1;
+  }
+}
@@ -0,0 +1,189 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelGenerator plants the mines of a {@link Board} from a seed, splitting the board into
+ * stripes of rows that are filled on a {@link ForkJoinPool}. The board is halved recursively: each
+ * split draws how many of its mines fall in each half from the hypergeometric distribution, as
+ * uniform sampling over the whole range would, and hands each half its own {@link
+ * SplittableRandom} split from its parent. A split costs one random number and a walk of about a
+ * standard deviation from the most likely count, rather than one random number per mine, so the
+ * serial part of the generation stays small next to the stripes. Because the splits only depend
+ * on the seed and the board size, the same seed produces the same board whether the stripes run in
+ * parallel or one after another on the calling thread, without a pool. The board differs from the
+ * one {@link Board#initBoard()} plants with a generator of the same seed.
+ *
+ * <p>Once every stripe is planted, adjacent mine counts are filled in stripe by stripe. A stripe
+ * reads the mine bits of the rows just outside it but only writes its own rows, so stripes never
+ * contend.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ParallelGenerator {
+  /** Number of rows below which a range is not split further */
+  private static final int STRIPE_ROWS = 64;
+  /** ln n! of the values below which Stirling's series is not accurate enough */
+  private static final double[] LOG_FACTORIALS = new double[32];
+
+  static {
+    for (int n = 1; n < LOG_FACTORIALS.length; n++) {
+      LOG_FACTORIALS[n] = LOG_FACTORIALS[n - 1] + StrictMath.log(n);
+    }
+  }
+
+  /** The pool running the stripes, or <code>null</code> to run them on the calling thread */
+  private final ForkJoinPool pool;
+
+  /**
+   * Initialize a generator running the stripes on the given pool.
+   *
+   * @param pool the pool running the stripes, or <code>null</code> to generate sequentially
+   */
+  public ParallelGenerator(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Plant the mines of an empty board and count the adjacent mines of every grid.
+   *
+   * @param board the board to fill, which must not have been initialized yet
+   * @param seed the seed defining the mine layout
+   */
+  public void generate(Board board, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    Stripe plant = new Stripe(board, 0, board.getHeight(), board.getNMines(), random);
+    Stripe count = new Stripe(board, 0, board.getHeight(), -1, null);
+    if (pool == null) {
+      plant.compute();
+      count.compute();
+    } else {
+      pool.invoke(plant);
+      pool.invoke(count);
+    }
+  }
+
+  /**
+   * Compute the natural logarithm of a factorial, exactly from a table for small values and with
+   * Stirling's series otherwise.
+   *
+   * @param n the non-negative value
+   * @return ln n!
+   */
+  static double logFactorial(int n) {
+    if (n < LOG_FACTORIALS.length) return LOG_FACTORIALS[n];
+    double x = n;
+    double inverse = 1 / x;
+    double inverse2 = inverse * inverse;
+    return x * StrictMath.log(x)
+        - x
+        + 0.5 * StrictMath.log(2 * Math.PI * x)
+        + inverse * (1.0 / 12 - inverse2 * (1.0 / 360 - inverse2 / 1260));
+  }
+
+  /**
+   * A range of rows of the board. With a random generator, the task plants its share of mines;
+   * without one, it counts the adjacent mines of its rows.
+   */
+  private class Stripe extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Board board;
+    private final int fromRow;
+    private final int toRow;
+    private final int nMines;
+    private final SplittableRandom random;
+
+    private Stripe(Board board, int fromRow, int toRow, int nMines, SplittableRandom random) {
+      this.board = board;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+      this.nMines = nMines;
+      this.random = random;
+    }
+
+    @Override
+    protected void compute() {
+      int width = board.getWidth();
+      if (toRow - fromRow <= STRIPE_ROWS) {
+        if (random == null) board.countRows(fromRow, toRow);
+        else board.plantMines(fromRow * width, toRow * width, nMines, random);
+        return;
+      }
+
+      int midRow = (fromRow + toRow) >>> 1;
+      Stripe upper;
+      Stripe lower;
+      if (random == null) {
+        upper = new Stripe(board, fromRow, midRow, -1, null);
+        lower = new Stripe(board, midRow, toRow, -1, null);
+      } else {
+        int upperMines = split((midRow - fromRow) * width, (toRow - fromRow) * width);
+        upper = new Stripe(board, fromRow, midRow, upperMines, random.split());
+        lower = new Stripe(board, midRow, toRow, nMines - upperMines, random.split());
+      }
+      if (pool == null) {
+        upper.compute();
+        lower.compute();
+      } else {
+        invokeAll(upper, lower);
+      }
+    }
+
+    /**
+     * Draw how many of the stripe's mines fall in its upper part from the hypergeometric
+     * distribution of uniform sampling without replacement. The count is found by inversion,
+     * starting from the most likely count and walking outwards on both sides, so the expected
+     * number of steps is in the order of the standard deviation. {@link StrictMath} keeps the
+     * draw the same on every JVM.
+     *
+     * @param upperCells number of grids in the upper part
+     * @param cells number of grids in the stripe
+     * @return number of mines in the upper part
+     */
+    private int split(int upperCells, int cells) {
+      int lowerCells = cells - upperCells;
+      int min = Math.max(0, nMines - lowerCells);
+      int max = Math.min(nMines, upperCells);
+      if (min == max) return min;
+
+      int mode = (int) (((long) nMines + 1) * (upperCells + 1) / (cells + 2L));
+      mode = Math.max(min, Math.min(max, mode));
+      double modeProbability =
+          StrictMath.exp(
+              logFactorial(upperCells) - logFactorial(mode) - logFactorial(upperCells - mode)
+                  + logFactorial(lowerCells) - logFactorial(nMines - mode)
+                  - logFactorial(lowerCells - nMines + mode)
+                  - logFactorial(cells) + logFactorial(nMines) + logFactorial(cells - nMines));
+
+      double u = random.nextDouble() - modeProbability;
+      int up = mode;
+      int down = mode;
+      double upProbability = modeProbability;
+      double downProbability = modeProbability;
+      while (u > 0 && (up < max || down > min)) {
+        if (up < max) {
+          upProbability *=
+              (double) (upperCells - up) * (nMines - up)
+                  / ((up + 1.0) * (lowerCells - nMines + up + 1.0));
+          up++;
+          u -= upProbability;
+          if (u <= 0) return up;
+        }
+        if (down > min) {
+          downProbability *=
+              (double) down * (lowerCells - nMines + down)
+                  / ((double) (upperCells - down + 1) * (nMines - down + 1));
+          down--;
+          u -= downProbability;
+        }
+      }
+      // Rounding may leave a sliver of probability unassigned; it goes to the last count visited.
+      return u <= 0 ? down : mode;
+    }
+  }
+}
@@ -0,0 +1,602 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ProbabilityEngine computes the exact probability that each unchecked grid of a {@link Board}
+ * contains a mine, given only what the player sees: the number of adjacent mines of the checked
+ * grids and the total number of mines. Marks are not trusted, since the player may be wrong.
+ *
+ * <p>The unchecked grids next to a checked grid form the frontier, and the checked grids around it
+ * are constraints on how many mines it holds. The frontier is split into components that share no
+ * constraint. Each component is enumerated on its own, counting its solutions by number of mines
+ * and how often each grid holds a mine in them. The components are then combined, every
+ * combination of their mine counts being weighted by the number of ways to place the remaining
+ * mines among the unchecked grids away from the frontier. Those grids all share the same
+ * probability.
+ *
+ * <p>The enumeration of a component only depends on its constraint signature: the number of mines
+ * of each constraint and which of the component's grids it covers. Enumerations are memoized by
+ * signature across calls, so after a move only the components the move touched are enumerated
+ * again.
+ *
+ * <p>Enumerating a component takes time exponential in its size, so a component of more than
+ * {@link #MAX_COMPONENT} grids is cut into pieces of consecutive grids in row-major order, and the
+ * constraints covering grids of more than one piece are dropped. Each piece is then enumerated as
+ * a component of its own. The probabilities of such a frontier are those of the looser
+ * constraints, and so an approximation, but they still add up to the number of mines.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ProbabilityEngine {
+  /** Maximum number of component enumerations kept between calls */
+  private static final int CACHE_SIZE = 4096;
+  /** Largest number of grids of a component enumerated as a whole */
+  static final int MAX_COMPONENT = 48;
+  /**
+   * Log of the weighted share of a total of frontier mines, relative to the largest, below which it
+   * is neglected: far below the precision of a double, so the probabilities do not change
+   */
+  private static final double LOG_NEGLIGIBLE = -50;
+
+  /** The board whose probabilities are computed */
+  private final Board board;
+  /** Enumerations by constraint signature, least recently used first */
+  private final LinkedHashMap<Signature, Enumeration> cache =
+      new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Signature, Enumeration> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+  /** Number of components enumerated so far */
+  private long enumerated;
+  /** Number of components found in the cache so far */
+  private long memoized;
+  /** Number of components cut into pieces so far */
+  private long cut;
+
+  /** The constraint signature of a component, comparable by value */
+  private static final class Signature {
+    /**
+     * The number of grids of the component, then for each constraint its number of mines, its
+     * number of grids and the indexes of its grids within the component
+     */
+    private final int[] code;
+    /** The hash of {@link #code} */
+    private final int hash;
+
+    private Signature(int[] code) {
+      this.code = code;
+      hash = Arrays.hashCode(code);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Signature && Arrays.equals(code, ((Signature) other).code);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** The solutions of a component, counted by their number of mines */
+  private static final class Enumeration {
+    /** Number of solutions with each number of mines, scaled so that the largest is 1 */
+    private final double[] solutions;
+    /**
+     * For each number of mines, the number of solutions in which each grid holds a mine, scaled
+     * like {@link #solutions}
+     */
+    private final double[][] mines;
+
+    private Enumeration(double[] solutions, double[][] mines) {
+      this.solutions = solutions;
+      this.mines = mines;
+    }
+  }
+
+  /**
+   * Initialize an engine computing the probabilities of the given board.
+   *
+   * @param board the game {@link Board}
+   */
+  public ProbabilityEngine(Board board) {
+    this.board = board;
+  }
+
+  /**
+   * Get the number of components enumerated, as opposed to found in the cache, so far.
+   *
+   * @return number of enumerated components
+   */
+  public long getEnumerated() {
+    return enumerated;
+  }
+
+  /**
+   * Get the number of components whose enumeration was found in the cache so far.
+   *
+   * @return number of memoized components
+   */
+  public long getMemoized() {
+    return memoized;
+  }
+
+  /**
+   * Get the number of components too large to be enumerated as a whole, and cut into pieces, so
+   * far. Their probabilities are approximations.
+   *
+   * @return number of cut components
+   */
+  public long getCut() {
+    return cut;
+  }
+
+  /**
+   * Compute the probability that each grid contains a mine in the current state of the board.
+   *
+   * @return the probability of each grid, in row-major order; 0 for checked grids
+   */
+  public double[] mineProbabilities() {
+    int size = board.size();
+    double[] probabilities = new double[size];
+
+    // Link the frontier grids sharing a constraint into components
+    int[] parent = new int[size];
+    Arrays.fill(parent, -1);
+    int unchecked = 0;
+    for (int i = 0; i < size; i++) {
+      int cell = board.getCell(i);
+      if ((cell & Board.CHECKED) == 0) {
+        unchecked++;
+        continue;
+      }
+      if ((cell & Board.N_ADJ_MINE) == 0) continue;
+      int first = -1;
+      for (int m = board.getNeighborMask(i); m != 0; m &= m - 1) {
+        int neighbor = board.getNeighbor(i, Integer.numberOfTrailingZeros(m));
+        if ((board.getCell(neighbor) & Board.CHECKED) != 0) continue;
+        if (parent[neighbor] < 0) parent[neighbor] = neighbor;
+        if (first < 0) first = neighbor;
+        else union(parent, first, neighbor);
+      }
+    }
+
+    // Number the grids of each component in row-major order, cutting it every MAX_COMPONENT grids
+    int[] component = new int[size];
+    int[] local = new int[size];
+    int nComponents = 0;
+    int[] componentSizes = new int[16];
+    int[] roots = new int[size];
+    Arrays.fill(roots, -1);
+    boolean[] cutRoots = null;
+    int frontier = 0;
+    for (int i = 0; i < size; i++) {
+      if (parent[i] < 0) continue;
+      int root = find(parent, i);
+      if (roots[root] < 0) {
+        if (nComponents == componentSizes.length) {
+          componentSizes = Arrays.copyOf(componentSizes, nComponents * 2);
+        }
+        roots[root] = nComponents++;
+      } else if (componentSizes[roots[root]] == MAX_COMPONENT) {
+        if (nComponents == componentSizes.length) {
+          componentSizes = Arrays.copyOf(componentSizes, nComponents * 2);
+        }
+        if (cutRoots == null) cutRoots = new boolean[size];
+        if (!cutRoots[root]) cut++;
+        cutRoots[root] = true;
+        roots[root] = nComponents++;
+      }
+      component[i] = roots[root];
+      local[i] = componentSizes[component[i]]++;
+      frontier++;
+    }
+
+    // Gather the signature and grids of each component, and enumerate it unless memoized
+    int[][] codes = new int[nComponents][];
+    int[] codeLengths = new int[nComponents];
+    int[][] grids = new int[nComponents][];
+    for (int c = 0; c < nComponents; c++) {
+      codes[c] = new int[16];
+      codes[c][codeLengths[c]++] = componentSizes[c];
+      grids[c] = new int[componentSizes[c]];
+    }
+    for (int i = 0; i < size; i++) {
+      if (parent[i] >= 0) grids[component[i]][local[i]] = i;
+      int cell = board.getCell(i);
+      if ((cell & Board.CHECKED) == 0 || (cell & Board.N_ADJ_MINE) == 0) continue;
+      if (cutRoots != null && spansPieces(i, component)) continue;
+      int c = -1;
+      int start = 0;
+      for (int m = board.getNeighborMask(i); m != 0; m &= m - 1) {
+        int neighbor = board.getNeighbor(i, Integer.numberOfTrailingZeros(m));
+        if ((board.getCell(neighbor) & Board.CHECKED) != 0) continue;
+        if (c < 0) {
+          c = component[neighbor];
+          if (codeLengths[c] + 10 > codes[c].length) {
+            codes[c] = Arrays.copyOf(codes[c], codes[c].length * 2);
+          }
+          codes[c][codeLengths[c]++] = cell & Board.N_ADJ_MINE;
+          start = codeLengths[c]++;
+        }
+        codes[c][codeLengths[c]++] = local[neighbor];
+      }
+      if (c >= 0) codes[c][start] = codeLengths[c] - start - 1;
+    }
+    Enumeration[] enumerations = new Enumeration[nComponents];
+    for (int c = 0; c < nComponents; c++) {
+      Signature signature = new Signature(Arrays.copyOf(codes[c], codeLengths[c]));
+      Enumeration enumeration = cache.get(signature);
+      if (enumeration == null) {
+        enumeration = enumerate(signature.code);
+        cache.put(signature, enumeration);
+        enumerated++;
+      } else {
+        memoized++;
+      }
+      enumerations[c] = enumeration;
+    }
+
+    int others = unchecked - frontier;
+    double other = combine(enumerations, grids, others, probabilities);
+    if (others > 0) {
+      for (int i = 0; i < size; i++) {
+        if (parent[i] < 0 && (board.getCell(i) & Board.CHECKED) == 0) probabilities[i] = other;
+      }
+    }
+    return probabilities;
+  }
+
+  /**
+   * Determine if the unchecked neighbors of a checked grid fall in more than one component, which
+   * only happens when a component too large was cut into pieces.
+   *
+   * @param index the row-major index of the checked grid
+   * @param component the component of each frontier grid
+   * @return <code>true</code> if the grid's constraint must be dropped
+   */
+  private boolean spansPieces(int index, int[] component) {
+    int c = -1;
+    for (int m = board.getNeighborMask(index); m != 0; m &= m - 1) {
+      int neighbor = board.getNeighbor(index, Integer.numberOfTrailingZeros(m));
+      if ((board.getCell(neighbor) & Board.CHECKED) != 0) continue;
+      if (c < 0) c = component[neighbor];
+      else if (component[neighbor] != c) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Combine the enumerations of the components with the grids away from the frontier. The weight
+   * of every total of frontier mines <i>s</i> is the number of ways to place the other mines among
+   * the <i>n</i> grids away from the frontier, <i>C(n, mines - s)</i>, computed in log space.
+   * Distributions are rescaled as they are convolved, so every probability is a ratio of weights
+   * taken from the same distribution.
+   *
+   * @param enumerations the enumeration of each component
+   * @param grids the grids of each component, by index within the component
+   * @param others number of unchecked grids away from the frontier
+   * @param probabilities receives the probability of each frontier grid
+   * @return the probability of each grid away from the frontier
+   */
+  private double combine(
+      Enumeration[] enumerations, int[][] grids, int others, double[] probabilities) {
+    int nComponents = enumerations.length;
+    int nMines = board.getNMines();
+
+    // prefix[c] and suffix[c] are the distributions of mines over components before and after c
+    double[][] prefix = new double[nComponents + 1][];
+    double[][] suffix = new double[nComponents + 1][];
+    prefix[0] = new double[] {1};
+    suffix[nComponents] = new double[] {1};
+    for (int c = 0; c < nComponents; c++) {
+      prefix[c + 1] = convolve(prefix[c], enumerations[c].solutions);
+    }
+    for (int c = nComponents - 1; c >= 0; c--) {
+      suffix[c] = convolve(enumerations[c].solutions, suffix[c + 1]);
+    }
+    double[] total = prefix[nComponents];
+
+    // weight[s] = C(others, nMines - s), scaled so that the largest total[s] * weight[s] is 1,
+    // and 0 outside the band of totals whose weighted share is not negligible
+    double[] logWeight = new double[total.length];
+    double maxLog = Double.NEGATIVE_INFINITY;
+    for (int s = 0; s < total.length; s++) {
+      int rest = nMines - s;
+      logWeight[s] =
+          rest < 0 || rest > others
+              ? Double.NEGATIVE_INFINITY
+              : s > 0 && logWeight[s - 1] != Double.NEGATIVE_INFINITY
+                  ? logWeight[s - 1] + Math.log((double) (rest + 1) / (others - rest))
+                  : logChoose(others, rest);
+      if (total[s] >= Double.MIN_NORMAL) {
+        maxLog = Math.max(maxLog, logWeight[s] + Math.log(total[s]));
+      }
+    }
+    double[] weight = new double[total.length];
+    int low = total.length;
+    int high = -1;
+    for (int s = 0; s < total.length; s++) {
+      if (total[s] < Double.MIN_NORMAL
+          || logWeight[s] + Math.log(total[s]) - maxLog < LOG_NEGLIGIBLE) {
+        continue;
+      }
+      weight[s] = Math.exp(logWeight[s] - maxLog);
+      low = Math.min(low, s);
+      high = s;
+    }
+
+    double norm = 0;
+    double otherMines = 0;
+    for (int s = low; s <= high; s++) {
+      norm += total[s] * weight[s];
+      otherMines += total[s] * weight[s] * (nMines - s);
+    }
+
+    // Every distribution is scaled differently, so each component is normalized by the total
+    // weight of its own combinations with the rest of the frontier, on the scale of its rest.
+    // Only the totals of the band count, so the rest is only needed from low - k to high - k.
+    for (int c = 0; c < nComponents; c++) {
+      Enumeration enumeration = enumerations[c];
+      int from = Math.max(0, low - (enumeration.solutions.length - 1));
+      double[] rest = convolve(prefix[c], suffix[c + 1], from, high);
+      double[] cellWeights = new double[grids[c].length];
+      double componentNorm = 0;
+      for (int k = 0; k < enumeration.solutions.length; k++) {
+        double restWeight = 0;
+        for (int r = Math.max(from, low - k); r <= high - k; r++) {
+          restWeight += rest[r - from] * weight[k + r];
+        }
+        if (restWeight == 0) continue;
+        componentNorm += enumeration.solutions[k] * restWeight;
+        double[] mines = enumeration.mines[k];
+        for (int j = 0; j < mines.length; j++) cellWeights[j] += mines[j] * restWeight;
+      }
+      for (int j = 0; j < grids[c].length; j++) {
+        probabilities[grids[c][j]] = cellWeights[j] / componentNorm;
+      }
+    }
+
+    return others == 0 ? 0 : otherMines / norm / others;
+  }
+
+  /**
+   * Enumerate the solutions of a component by backtracking, pruning as soon as a constraint can no
+   * longer be met.
+   *
+   * @param code the constraint signature of the component
+   * @return the counted solutions
+   */
+  private static Enumeration enumerate(int[] code) {
+    Enumerator enumerator = new Enumerator(code);
+    enumerator.search(0, 0, 1);
+
+    int n = code[0];
+    double[] solutions = enumerator.solutions;
+    double[][] mines = new double[n + 1][n];
+    double max = 0;
+    for (double count : solutions) max = Math.max(max, count);
+    for (int k = 0; k <= n; k++) {
+      for (int j = 0; j < n; j++) {
+        int q = enumerator.classOf[j];
+        mines[k][j] = enumerator.classMines[k][q] / enumerator.classSizes[q] / max;
+      }
+      solutions[k] /= max;
+    }
+    return new Enumeration(solutions, mines);
+  }
+
+  /**
+   * The state of the backtracking enumeration of a component. Grids covered by exactly the same
+   * constraints are interchangeable, so they are grouped into classes, and a class holding
+   * <i>v</i> mines out of <i>s</i> grids stands for <i>C(s, v)</i> solutions at once. Classes are
+   * assigned in breadth-first order along the constraints, so that each constraint is completed,
+   * and can prune, soon after it is first touched.
+   */
+  private static final class Enumerator {
+    /** Number of classes */
+    private final int nClasses;
+    /** The class of each grid */
+    private final int[] classOf;
+    /** Number of grids of each class */
+    private final int[] classSizes;
+    /** The constraints covering each class, in assignment order */
+    private final int[][] constraintsOf;
+    /** Number of mines each constraint still needs */
+    private final int[] need;
+    /** Number of unassigned grids of each constraint */
+    private final int[] free;
+    /** Number of mines assigned to each class in the current partial solution */
+    private final int[] assigned;
+    /** Weighted number of solutions by number of mines */
+    private final double[] solutions;
+    /** By number of mines, the weighted number of mines each class holds over all solutions */
+    private final double[][] classMines;
+
+    /**
+     * Initialize the enumeration of a component from its constraint signature.
+     *
+     * @param code the constraint signature of the component
+     */
+    private Enumerator(int[] code) {
+      int n = code[0];
+      int nConstraints = 0;
+      for (int p = 1; p < code.length; p += code[p + 1] + 2) nConstraints++;
+      need = new int[nConstraints];
+      free = new int[nConstraints];
+      int[][] gridConstraints = new int[n][8];
+      int[] nGridConstraints = new int[n];
+      int[][] constraintGrids = new int[nConstraints][];
+      int c = 0;
+      for (int p = 1; p < code.length; p += code[p + 1] + 2, c++) {
+        need[c] = code[p];
+        free[c] = code[p + 1];
+        constraintGrids[c] = Arrays.copyOfRange(code, p + 2, p + 2 + code[p + 1]);
+        for (int j : constraintGrids[c]) gridConstraints[j][nGridConstraints[j]++] = c;
+      }
+
+      // Visit the grids breadth first along the constraints, opening a class per constraint set
+      classOf = new int[n];
+      Arrays.fill(classOf, -1);
+      int[] order = new int[n];
+      int[] classSizes = new int[n];
+      int[][] constraintsOf = new int[n][];
+      int nClasses = 0;
+      boolean[] visited = new boolean[n];
+      int head = 0;
+      int tail = 0;
+      for (int root = 0; root < n; root++) {
+        if (visited[root]) continue;
+        visited[root] = true;
+        order[tail++] = root;
+        while (head < tail) {
+          int j = order[head++];
+          int[] set = Arrays.copyOf(gridConstraints[j], nGridConstraints[j]);
+          for (int q = 0; q < nClasses && classOf[j] < 0; q++) {
+            if (Arrays.equals(constraintsOf[q], set)) classOf[j] = q;
+          }
+          if (classOf[j] < 0) {
+            constraintsOf[nClasses] = set;
+            classOf[j] = nClasses++;
+          }
+          classSizes[classOf[j]]++;
+          for (int constraint : set) {
+            for (int neighbor : constraintGrids[constraint]) {
+              if (visited[neighbor]) continue;
+              visited[neighbor] = true;
+              order[tail++] = neighbor;
+            }
+          }
+        }
+      }
+      this.nClasses = nClasses;
+      this.classSizes = Arrays.copyOf(classSizes, nClasses);
+      this.constraintsOf = Arrays.copyOf(constraintsOf, nClasses);
+      assigned = new int[nClasses];
+      solutions = new double[n + 1];
+      classMines = new double[n + 1][nClasses];
+    }
+
+    /**
+     * Assign the classes from the given one on, counting every complete solution.
+     *
+     * @param q the index of the next class to assign
+     * @param k the number of mines assigned so far
+     * @param weight the number of solutions the partial assignment stands for
+     */
+    private void search(int q, int k, double weight) {
+      if (q == nClasses) {
+        solutions[k] += weight;
+        for (int i = 0; i < nClasses; i++) classMines[k][i] += weight * assigned[i];
+        return;
+      }
+      int[] constraints = constraintsOf[q];
+      int size = classSizes[q];
+      double ways = 1;
+      for (int v = 0; v <= size; v++) {
+        boolean feasible = true;
+        for (int c : constraints) {
+          int left = need[c] - v;
+          if (left < 0 || left > free[c] - size) feasible = false;
+        }
+        if (feasible) {
+          for (int c : constraints) {
+            need[c] -= v;
+            free[c] -= size;
+          }
+          assigned[q] = v;
+          search(q + 1, k + v, weight * ways);
+          for (int c : constraints) {
+            need[c] += v;
+            free[c] += size;
+          }
+        }
+        ways = ways * (size - v) / (v + 1);
+      }
+      assigned[q] = 0;
+    }
+  }
+
+  /**
+   * Convolve two distributions of mine counts.
+   *
+   * @param a the first distribution
+   * @param b the second distribution
+   * @return the distribution of the sum, scaled so that the largest entry is 1
+   */
+  private static double[] convolve(double[] a, double[] b) {
+    return convolve(a, b, 0, a.length + b.length - 2);
+  }
+
+  /**
+   * Convolve two distributions of mine counts, keeping only the sums in a range.
+   *
+   * @param a the first distribution
+   * @param b the second distribution
+   * @param from the smallest sum kept
+   * @param to the largest sum kept
+   * @return the distribution of the sums from <code>from</code> to <code>to</code>, scaled so that
+   *     the largest entry is 1
+   */
+  private static double[] convolve(double[] a, double[] b, int from, int to) {
+    double[] sum = new double[Math.max(0, to - from + 1)];
+    double max = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == 0) continue;
+      int jFrom = Math.max(0, from - i);
+      int jTo = Math.min(b.length - 1, to - i);
+      for (int j = jFrom; j <= jTo; j++) sum[i + j - from] += a[i] * b[j];
+    }
+    for (double value : sum) max = Math.max(max, value);
+    if (max > 0) for (int s = 0; s < sum.length; s++) sum[s] /= max;
+    return sum;
+  }
+
+  /**
+   * Compute the natural logarithm of a binomial coefficient.
+   *
+   * @param n the number of grids
+   * @param r the number of mines among them
+   * @return ln C(n, r)
+   */
+  private static double logChoose(int n, int r) {
+    r = Math.min(r, n - r);
+    double log = 0;
+    for (int i = 0; i < r; i++) log += Math.log((double) (n - i) / (i + 1));
+    return log;
+  }
+
+  /**
+   * Find the root of a grid's component, halving the path on the way.
+   *
+   * @param parent the parent of each frontier grid
+   * @param i the grid
+   * @return the root grid
+   */
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Merge the components of two grids.
+   *
+   * @param parent the parent of each frontier grid
+   * @param a the first grid
+   * @param b the second grid
+   */
+  private static void union(int[] parent, int a, int b) {
+    parent[find(parent, a)] = find(parent, b);
+  }
+}
@@ -0,0 +1,121 @@
+package minesweeper;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionRegistry keeps the games hosted by a {@link GameServer}, each under a random session id.
+ * A session outlives the connection that created it, so a client can attach to it again, but a
+ * session that receives no move for longer than the idle timeout is evicted by a background task.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class SessionRegistry implements AutoCloseable {
+  /** A hosted game and the time it was last used */
+  static class Session {
+    /** The id of the session */
+    final String id;
+    /** The engine of the hosted game. Moves are applied while holding the session's lock */
+    final GameEngine engine;
+    /** The encoder of the binary board messages, used while holding the session's lock */
+    final BoardCodec codec;
+    /** Value of {@link System#nanoTime()} when the session was last used */
+    volatile long lastAccess;
+
+    private Session(String id, GameEngine engine) {
+      this.id = id;
+      this.engine = engine;
+      codec = new BoardCodec(engine.getBoard());
+      lastAccess = System.nanoTime();
+    }
+  }
+
+  /** Source of the session ids, which must not be guessable by other clients */
+  private final SecureRandom ids = new SecureRandom();
+  /** The sessions by id */
+  private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+  /** Task evicting idle sessions */
+  private final ScheduledExecutorService evictor;
+  /** Time without moves after which a session is evicted, in nanoseconds */
+  private final long idleTimeout;
+
+  /**
+   * Initialize an empty registry evicting sessions idle for longer than the given time.
+   *
+   * @param idleTimeout the idle time after which a session is evicted
+   * @param unit the unit of the idle time
+   */
+  public SessionRegistry(long idleTimeout, TimeUnit unit) {
+    this.idleTimeout = unit.toNanos(idleTimeout);
+    evictor =
+        Executors.newSingleThreadScheduledExecutor(
+            task -> {
+              Thread thread = new Thread(task, "session-evictor");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long period = Math.max(1, this.idleTimeout / 2);
+    evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Register a new session for the given game.
+   *
+   * @param engine the engine of the game
+   * @return the new session
+   */
+  Session create(GameEngine engine) {
+    while (true) {
+      Session session = new Session(Long.toHexString(ids.nextLong()), engine);
+      if (sessions.putIfAbsent(session.id, session) == null) return session;
+    }
+  }
+
+  /**
+   * Get the session with the given id and record that it is being used.
+   *
+   * @param id the id of the session
+   * @return the session, or <code>null</code> if there is no such session
+   */
+  Session get(String id) {
+    Session session = sessions.get(id);
+    if (session != null) session.lastAccess = System.nanoTime();
+    return session;
+  }
+
+  /**
+   * Get the number of sessions.
+   *
+   * @return number of sessions
+   */
+  public int size() {
+    return sessions.size();
+  }
+
+  /**
+   * Remove every session that has not been used for longer than the idle timeout.
+   *
+   * @return number of sessions removed
+   */
+  int evictIdle() {
+    long now = System.nanoTime();
+    int evicted = 0;
+    for (Session session : sessions.values()) {
+      if (now - session.lastAccess > idleTimeout && sessions.remove(session.id, session)) {
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  /** Stop evicting sessions. */
+  @Override
+  public void close() {
+    evictor.shutdownNow();
+  }
+}
@@ -0,0 +1,475 @@
+package minesweeper;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Simulation plays a large number of games with a {@link Strategy} to measure how often it wins,
+ * for example to calibrate the difficulty of a board size and number of mines. Games are split into
+ * batches run by a fork/join pool, whose idle workers steal the batches of busy ones. Each worker
+ * keeps one {@link Board} and one strategy and reuses them for every game it plays, so a game only
+ * allocates its {@link GameEngine}.
+ *
+ * <p>The mines of game <i>i</i> are placed from a seed derived from the simulation's seed and
+ * <i>i</i> alone, so results are reproducible whatever the number of workers and however the
+ * batches are scheduled. Besides the aggregated {@link Summary}, the result of every game can be
+ * streamed to a {@link Sink}, one batch at a time; batches arrive in no particular order.
+ *
+ * <p>Usage: <code>java minesweeper.Simulation [games] [HEIGHTxWIDTH] [mines] [seed]
+ * [file.csv|file.bin] </code>, by default a million expert games played by the {@link Solver}.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class Simulation {
+  /** Number of games of a batch, the unit of work stealing and of output */
+  private static final int BATCH = 4096;
+  /** The golden ratio increment of SplitMix64 */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /** A way of playing a game */
+  public interface Strategy {
+    /**
+     * Play a game that has not started yet until it is over.
+     *
+     * @param engine the game to play
+     */
+    void play(GameEngine engine);
+  }
+
+  /** A destination of the results of the games */
+  public interface Sink {
+    /**
+     * Write the results of a batch of games. Calls are never concurrent.
+     *
+     * @param batch the results
+     * @throws IOException On output error
+     */
+    void write(Batch batch) throws IOException;
+  }
+
+  /** The results of a batch of games */
+  public static final class Batch {
+    /** Index of each game */
+    private final long[] games = new long[BATCH];
+    /** Determines if each game is won */
+    private final boolean[] won = new boolean[BATCH];
+    /** Number of moves of each game */
+    private final int[] moves = new int[BATCH];
+    /** Number of checks of each game */
+    private final int[] checks = new int[BATCH];
+    /** Number of grids checked in each game */
+    private final int[] revealed = new int[BATCH];
+    /** Number of games of the batch */
+    private int size;
+
+    /**
+     * Get the number of games of the batch.
+     *
+     * @return number of games
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Get the index of a game within the simulation, which determines its mines.
+     *
+     * @param i the position of the game in the batch
+     * @return the index of the game
+     */
+    public long getGame(int i) {
+      return games[i];
+    }
+
+    /**
+     * Determine if a game is won.
+     *
+     * @param i the position of the game in the batch
+     * @return <code>true</code> if the game is won
+     */
+    public boolean isWon(int i) {
+      return won[i];
+    }
+
+    /**
+     * Get the number of moves of a game.
+     *
+     * @param i the position of the game in the batch
+     * @return number of moves
+     * @see GameEngine#getMoves()
+     */
+    public int getMoves(int i) {
+      return moves[i];
+    }
+
+    /**
+     * Get the number of checks of a game, each with its cascade.
+     *
+     * @param i the position of the game in the batch
+     * @return number of checks
+     * @see GameEngine#getChecks()
+     */
+    public int getChecks(int i) {
+      return checks[i];
+    }
+
+    /**
+     * Get the number of grids checked in a game, cascades included.
+     *
+     * @param i the position of the game in the batch
+     * @return number of grids checked
+     */
+    public int getRevealed(int i) {
+      return revealed[i];
+    }
+  }
+
+  /** A sink writing one line of comma-separated values per game, after a header line */
+  public static final class CsvSink implements Sink, Closeable {
+    /** The destination */
+    private final Writer writer;
+
+    /**
+     * Initialize a sink writing to a file, replacing its content.
+     *
+     * @param path the path of the file
+     * @throws IOException On output error
+     */
+    public CsvSink(Path path) throws IOException {
+      writer = new BufferedWriter(Files.newBufferedWriter(path), 1 << 16);
+      writer.write("game,won,moves,checks,revealed\n");
+    }
+
+    @Override
+    public void write(Batch batch) throws IOException {
+      StringBuilder lines = new StringBuilder(batch.size * 24);
+      for (int i = 0; i < batch.size; i++) {
+        lines.append(batch.games[i]).append(',').append(batch.won[i] ? 1 : 0).append(',');
+        lines.append(batch.moves[i]).append(',').append(batch.checks[i]).append(',');
+        lines.append(batch.revealed[i]).append('\n');
+      }
+      writer.append(lines);
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  /**
+   * A sink writing one 21-byte big-endian record per game: the index of the game, a byte set if
+   * it is won, then its moves, checks and checked grids.
+   */
+  public static final class BinarySink implements Sink, Closeable {
+    /** The destination */
+    private final DataOutputStream output;
+
+    /**
+     * Initialize a sink writing to a stream.
+     *
+     * @param output the destination
+     */
+    public BinarySink(OutputStream output) {
+      this.output = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+    }
+
+    @Override
+    public void write(Batch batch) throws IOException {
+      for (int i = 0; i < batch.size; i++) {
+        output.writeLong(batch.games[i]);
+        output.writeByte(batch.won[i] ? 1 : 0);
+        output.writeInt(batch.moves[i]);
+        output.writeInt(batch.checks[i]);
+        output.writeInt(batch.revealed[i]);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+  }
+
+  /** Aggregated results of a number of games */
+  public static final class Summary {
+    /** Number of games */
+    private long games;
+    /** Number of games won */
+    private long wins;
+    /** Total number of moves */
+    private long moves;
+    /** Total number of checks */
+    private long checks;
+    /** Total number of grids checked */
+    private long revealed;
+
+    /**
+     * Add the results of other games.
+     *
+     * @param other the results to add
+     * @return this summary
+     */
+    private Summary add(Summary other) {
+      games += other.games;
+      wins += other.wins;
+      moves += other.moves;
+      checks += other.checks;
+      revealed += other.revealed;
+      return this;
+    }
+
+    /**
+     * Get the number of games.
+     *
+     * @return number of games
+     */
+    public long getGames() {
+      return games;
+    }
+
+    /**
+     * Get the number of games won.
+     *
+     * @return number of wins
+     */
+    public long getWins() {
+      return wins;
+    }
+
+    /**
+     * Get the share of games won.
+     *
+     * @return win rate between 0 and 1
+     */
+    public double getWinRate() {
+      return games == 0 ? 0 : (double) wins / games;
+    }
+
+    /**
+     * Get the mean number of moves per game.
+     *
+     * @return moves per game
+     */
+    public double getMovesPerGame() {
+      return games == 0 ? 0 : (double) moves / games;
+    }
+
+    /**
+     * Get the mean number of grids checked by a check, cascade included.
+     *
+     * @return mean cascade size
+     */
+    public double getCascadeSize() {
+      return checks == 0 ? 0 : (double) revealed / checks;
+    }
+  }
+
+  /**
+   * A random generator that can be reseeded without allocating, following SplitMix64 like {@link
+   * java.util.SplittableRandom}.
+   */
+  private static final class GameRandom implements RandomGenerator {
+    /** The state of the generator */
+    private long state;
+
+    @Override
+    public long nextLong() {
+      return mix(state += GOLDEN_GAMMA);
+    }
+  }
+
+  /** The board, random generator and strategy a worker reuses for every game it plays */
+  private final class Worker {
+    /** The generator placing the mines, reseeded for every game */
+    private final GameRandom random = new GameRandom();
+    /** The board, reset for every game */
+    private final Board board = new Board(height, width, nMines, random);
+    /** The strategy playing every game of the worker */
+    private final Strategy strategy = strategies.get();
+  }
+
+  /** A range of games, played as one batch or split in two */
+  private final class Games extends RecursiveTask<Summary> {
+    private static final long serialVersionUID = 1L;
+
+    /** Index of the first game */
+    private final long from;
+    /** Index after the last game */
+    private final long to;
+    /** The destination of the results of the games, or <code>null</code> */
+    private final Sink sink;
+
+    private Games(long from, long to, Sink sink) {
+      this.from = from;
+      this.to = to;
+      this.sink = sink;
+    }
+
+    @Override
+    protected Summary compute() {
+      if (to - from > BATCH) {
+        long middle = (from + to) >>> 1;
+        Games upper = new Games(from, middle, sink);
+        upper.fork();
+        Summary lower = new Games(middle, to, sink).compute();
+        return lower.add(upper.join());
+      }
+
+      Worker worker = workers.get();
+      Board board = worker.board;
+      Batch batch = sink == null ? null : new Batch();
+      Summary summary = new Summary();
+      for (long game = from; game < to; game++) {
+        board.reset();
+        worker.random.state = mix(seed + game * GOLDEN_GAMMA);
+        board.initBoard();
+        GameEngine engine = new GameEngine(board);
+        worker.strategy.play(engine);
+
+        boolean won = board.getGridToCheck() == 0;
+        int revealed = board.size() - nMines - board.getGridToCheck();
+        summary.games++;
+        if (won) summary.wins++;
+        summary.moves += engine.getMoves();
+        summary.checks += engine.getChecks();
+        summary.revealed += revealed;
+        if (batch != null) {
+          int i = batch.size++;
+          batch.games[i] = game;
+          batch.won[i] = won;
+          batch.moves[i] = engine.getMoves();
+          batch.checks[i] = engine.getChecks();
+          batch.revealed[i] = revealed;
+        }
+      }
+      if (batch != null) {
+        synchronized (sink) {
+          try {
+            sink.write(batch);
+          } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+          }
+        }
+      }
+      return summary;
+    }
+  }
+
+  /** Height of the boards */
+  private final int height;
+  /** Width of the boards */
+  private final int width;
+  /** Number of mines of the boards */
+  private final int nMines;
+  /** The seed from which the seed of every game is derived */
+  private final long seed;
+  /** Creates the strategy of each worker */
+  private final Supplier<Strategy> strategies;
+  /** The context of each worker */
+  private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+  /**
+   * Initialize a simulation of games on boards of the given size and number of mines.
+   *
+   * @param height the height of the boards
+   * @param width the width of the boards
+   * @param nMines number of mines of the boards
+   * @param seed the seed from which the mines of every game are derived
+   * @param strategies creates a strategy for each worker, since strategies may keep state
+   * @throws IllegalArgumentException if the number of mines does not fit in the board
+   */
+  public Simulation(int height, int width, int nMines, long seed, Supplier<Strategy> strategies) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Invalid board size: " + height + "x" + width);
+    }
+    if (nMines < 0 || nMines > height * width) {
+      throw new IllegalArgumentException("Invalid number of mines: " + nMines);
+    }
+    this.height = height;
+    this.width = width;
+    this.nMines = nMines;
+    this.seed = seed;
+    this.strategies = strategies;
+  }
+
+  /**
+   * Play games and aggregate their results.
+   *
+   * @param games number of games to play
+   * @param pool the pool running the games
+   * @param sink the destination of the result of every game, or <code>null</code>
+   * @return the aggregated results
+   * @throws UncheckedIOException if the sink fails
+   */
+  public Summary run(long games, ForkJoinPool pool, Sink sink) {
+    return pool.invoke(new Games(0, games, sink));
+  }
+
+  /**
+   * Get a strategy playing with the {@link Solver}.
+   *
+   * @return creates a solver strategy for each worker
+   */
+  public static Supplier<Strategy> solver() {
+    return () -> new Solver()::solve;
+  }
+
+  /**
+   * Mix the bits of a value with the finalizer of SplitMix64.
+   *
+   * @param z the value
+   * @return the mixed value
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  public static void main(String[] args) throws IOException {
+    long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+    String[] size = (args.length > 1 ? args[1] : "16x30").split("x");
+    int nMines = args.length > 2 ? Integer.parseInt(args[2]) : 99;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+    Path output = args.length > 4 ? Paths.get(args[4]) : null;
+
+    Simulation simulation =
+        new Simulation(
+            Integer.parseInt(size[0]), Integer.parseInt(size[1]), nMines, seed, solver());
+    Sink sink = null;
+    if (output != null && output.toString().endsWith(".bin")) {
+      sink = new BinarySink(Files.newOutputStream(output));
+    } else if (output != null) {
+      sink = new CsvSink(output);
+    }
+
+    long start = System.nanoTime();
+    Summary summary = simulation.run(games, ForkJoinPool.commonPool(), sink);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    if (sink != null) ((Closeable) sink).close();
+
+    System.out.printf(
+        "%,d games in %.1f s (%,.0f games/s) on %d workers%n",
+        summary.getGames(), seconds, summary.getGames() / seconds,
+        ForkJoinPool.commonPool().getParallelism());
+    System.out.printf("Win rate: %.2f%%%n", summary.getWinRate() * 100);
+    System.out.printf("Moves per game: %.2f%n", summary.getMovesPerGame());
+    System.out.printf("Grids per check: %.2f%n", summary.getCascadeSize());
+  }
+}
@@ -0,0 +1,470 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Solver plays a game on its own, using only what the player sees: which grids are checked, the
+ * number of adjacent mines of the checked grids, and the mines it has deduced itself. Every checked
+ * grid with adjacent mines is a constraint on its unknown neighbors. Deductions are made in three
+ * stages, each tried only when the previous one is stuck:
+ *
+ * <ol>
+ *   <li>Single constraints: if a constraint's remaining mines are zero, all of its unknown
+ *       neighbors are safe, and if they equal its number of unknown neighbors, all are mines.
+ *   <li>Pairs of overlapping constraints: if the unknown neighbors of one are a subset of the
+ *       other's, the difference holds the difference of their mines; and if the difference of
+ *       their mines equals the size of one side of the overlap, that side is all mines and the
+ *       other side all safe.
+ *   <li>A guess of the unknown grid least likely to contain a mine, as estimated from the
+ *       constraints around it and the density of the remaining mines, unless every mine is
+ *       deduced already and the unknown grids are all safe.
+ * </ol>
+ *
+ * <p>The solver works incrementally: only the constraints whose neighborhood changed since they
+ * were last examined are queued for examination again, and its whole state is kept in primitive
+ * arrays reused from game to game.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class Solver {
+  /** State of a grid the solver knows nothing about */
+  private static final byte UNKNOWN = 0;
+  /** State of a grid deduced to be safe but not checked yet */
+  private static final byte SAFE = 1;
+  /** State of a grid deduced to contain a mine */
+  private static final byte MINE = 2;
+  /** State of a checked grid */
+  private static final byte REVEALED = 3;
+  /** Row offset of each neighbor direction of {@link Board}, clockwise from the grid above */
+  private static final int[] DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+  /** Column offset of each neighbor direction of {@link Board}, clockwise from the grid above */
+  private static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+  /** Width of the window of grids around a constraint in which pairs are compared */
+  private static final int FRAME = 7;
+
+  /** The game played */
+  private GameEngine engine;
+  /** The board of the game played */
+  private Board board;
+  /** Width of the board */
+  private int width;
+  /** Index offset of each neighbor direction of {@link Board}, clockwise from the grid above */
+  private int[] offsets = new int[8];
+  /** Directions of the neighbors of each grid that are within the board */
+  private byte[] neighborMasks = new byte[0];
+  /** What the solver knows of each grid */
+  private byte[] state = new byte[0];
+  /** Number of unknown neighbors of each grid */
+  private byte[] nUnknown = new byte[0];
+  /** Number of neighbors of each grid deduced to contain a mine */
+  private byte[] nMines = new byte[0];
+  /** Grids deduced to be safe, waiting to be checked */
+  private int[] safe = new int[0];
+  /** Number of entries in {@link #safe} */
+  private int nSafe;
+  /** Constraints to examine alone */
+  private int[] singles = new int[0];
+  /** Number of entries in {@link #singles} */
+  private int nSingles;
+  /** Constraints to examine in pairs with their neighbors */
+  private int[] pairs = new int[0];
+  /** Number of entries in {@link #pairs} */
+  private int nPairs;
+  /** Bit 0 set when a constraint is in {@link #singles}, bit 1 when it is in {@link #pairs} */
+  private byte[] queued = new byte[0];
+  /** Stack of grids discovered by the cascade of a check */
+  private int[] discovered = new int[0];
+  /** Estimated probability of a mine in each grid, filled when guessing */
+  private float[] risk = new float[0];
+  /** Number of mines deduced */
+  private int nDeducedMines;
+  /** Number of grids checked on a guess in the last game */
+  private int guesses;
+
+  /**
+   * Play a game until it is won or lost. The game must not have started yet, so that the first
+   * check, made in the middle of the board, is guaranteed safe.
+   *
+   * @param engine the game to play
+   * @return <code>true</code> if the game is won
+   */
+  public boolean solve(GameEngine engine) {
+    Board board = engine.getBoard();
+    int width = board.getWidth();
+    return play(engine, board.getHeight() / 2 * width + width / 2, true);
+  }
+
+  /**
+   * Play a game from a given first check using deductions only, and stop as soon as none is left
+   * instead of guessing. The first check must be safe. A game won this way can be won without
+   * guessing by a player starting from the same grid, which is how boards are verified by {@link
+   * NoGuessGenerator}.
+   *
+   * @param engine the game to play
+   * @param y the y coordinate of the first check
+   * @param x the x coordinate of the first check
+   * @return <code>true</code> if the game is won; <code>false</code> if the solver is stuck, in
+   *     which case the unknown grids it is stuck on are given by {@link #getFrontier()}
+   */
+  public boolean solveWithoutGuessing(GameEngine engine, int y, int x) {
+    return play(engine, y * engine.getBoard().getWidth() + x, false);
+  }
+
+  /**
+   * Play a game from a given first check until it is won, lost, or stuck without guessing.
+   *
+   * @param engine the game to play
+   * @param first the row-major index of the first check
+   * @param guessing <code>true</code> to guess when stuck; <code>false</code> to stop
+   * @return <code>true</code> if the game is won
+   */
+  private boolean play(GameEngine engine, int first, boolean guessing) {
+    reset(engine);
+    check(first);
+    while (!engine.isGameOver()) {
+      if (nSafe > 0) {
+        int index = safe[--nSafe];
+        if (state[index] == SAFE) check(index);
+      } else if (nSingles > 0) {
+        int index = singles[--nSingles];
+        queued[index] &= ~1;
+        examine(index);
+      } else if ((nPairs == 0 || !examinePairs()) && !countMines()) {
+        if (!guessing) return false;
+        guess();
+      }
+    }
+    return board.getGridToCheck() == 0;
+  }
+
+  /**
+   * Get the number of grids checked on a guess in the last game, the first check excluded.
+   *
+   * @return number of guesses
+   */
+  public int getGuesses() {
+    return guesses;
+  }
+
+  /**
+   * Forget the previous game and size the state for a new one.
+   *
+   * @param engine the game to play
+   */
+  private void reset(GameEngine engine) {
+    this.engine = engine;
+    board = engine.getBoard();
+    width = board.getWidth();
+    int size = board.size();
+    if (state.length != size || offsets[4] != width) {
+      state = new byte[size];
+      nUnknown = new byte[size];
+      nMines = new byte[size];
+      neighborMasks = new byte[size];
+      safe = new int[size];
+      singles = new int[size];
+      pairs = new int[size];
+      queued = new byte[size];
+      discovered = new int[size];
+      risk = new float[size];
+      for (int direction = 0; direction < 8; direction++) {
+        offsets[direction] = DY[direction] * width + DX[direction];
+      }
+      for (int i = 0; i < size; i++) neighborMasks[i] = (byte) board.getNeighborMask(i);
+    } else {
+      Arrays.fill(state, UNKNOWN);
+      Arrays.fill(queued, (byte) 0);
+      Arrays.fill(nMines, (byte) 0);
+    }
+    for (int i = 0; i < size; i++) nUnknown[i] = (byte) Integer.bitCount(neighborMasks[i] & 0xFF);
+    nSafe = 0;
+    nSingles = 0;
+    nPairs = 0;
+    nDeducedMines = 0;
+    guesses = 0;
+  }
+
+  /**
+   * Check a grid and take in every grid checked by its cascade.
+   *
+   * @param index the row-major index of the grid
+   */
+  private void check(int index) {
+    if (engine.reveal(index / width, index % width) == GameEngine.MoveResult.LOST) return;
+
+    int n = 0;
+    discovered[n++] = index;
+    learn(index, REVEALED);
+    while (n > 0) {
+      int current = discovered[--n];
+      boolean empty = (board.getCell(current) & Board.N_ADJ_MINE) == 0;
+      if (!empty) enqueue(current);
+      for (int m = neighborMasks[current] & 0xFF; m != 0; m &= m - 1) {
+        int neighbor = current + offsets[Integer.numberOfTrailingZeros(m)];
+        if (state[neighbor] == REVEALED) {
+          enqueue(neighbor);
+        } else if (empty) {
+          learn(neighbor, REVEALED);
+          discovered[n++] = neighbor;
+        }
+      }
+    }
+  }
+
+  /**
+   * Record the new state of a grid and update the counts of its neighbors.
+   *
+   * @param index the row-major index of the grid
+   * @param newState the new state of the grid
+   */
+  private void learn(int index, byte newState) {
+    byte oldState = state[index];
+    state[index] = newState;
+    boolean wasUnknown = oldState == UNKNOWN;
+    boolean isMine = newState == MINE;
+    if (!wasUnknown && !isMine) return;
+    for (int m = neighborMasks[index] & 0xFF; m != 0; m &= m - 1) {
+      int neighbor = index + offsets[Integer.numberOfTrailingZeros(m)];
+      if (wasUnknown) nUnknown[neighbor]--;
+      if (isMine) nMines[neighbor]++;
+    }
+  }
+
+  /**
+   * Queue a constraint for examination alone and in pairs, unless it has no unknown neighbors.
+   *
+   * @param index the row-major index of the checked grid
+   */
+  private void enqueue(int index) {
+    if (nUnknown[index] == 0) return;
+    if ((queued[index] & 1) == 0) singles[nSingles++] = index;
+    if ((queued[index] & 2) == 0) pairs[nPairs++] = index;
+    queued[index] = 3;
+  }
+
+  /**
+   * Apply the single constraint rules to a checked grid.
+   *
+   * @param index the row-major index of the checked grid
+   */
+  private void examine(int index) {
+    int unknown = nUnknown[index];
+    if (unknown == 0) return;
+    int remaining = remaining(index);
+    if (remaining != 0 && remaining != unknown) return;
+    for (int m = neighborMasks[index] & 0xFF; m != 0; m &= m - 1) {
+      int neighbor = index + offsets[Integer.numberOfTrailingZeros(m)];
+      if (state[neighbor] == UNKNOWN) deduce(neighbor, remaining != 0);
+    }
+  }
+
+  /**
+   * Try the pair rules on the queued constraints until one yields a deduction.
+   *
+   * @return <code>true</code> if a grid was deduced; <code>false</code> if the queue ran out
+   */
+  private boolean examinePairs() {
+    int height = board.getHeight();
+    while (nPairs > 0) {
+      int a = pairs[--nPairs];
+      queued[a] &= ~2;
+      if (nUnknown[a] == 0) continue;
+      int ay = a / width;
+      int ax = a % width;
+      int remainingA = remaining(a);
+      long unknownA = unknownMask(a, FRAME / 2, FRAME / 2);
+
+      for (int by = Math.max(0, ay - 2); by <= Math.min(height - 1, ay + 2); by++) {
+        for (int bx = Math.max(0, ax - 2); bx <= Math.min(width - 1, ax + 2); bx++) {
+          int b = by * width + bx;
+          if (b == a || state[b] != REVEALED || nUnknown[b] == 0) continue;
+          long unknownB = unknownMask(b, by - ay + FRAME / 2, bx - ax + FRAME / 2);
+          if ((unknownA & unknownB) == 0) continue;
+          int remainingB = remaining(b);
+          long onlyA = unknownA & ~unknownB;
+          long onlyB = unknownB & ~unknownA;
+          if (onlyA == 0 && deduce(onlyB, remainingB - remainingA, a)) return requeue(a);
+          if (onlyB == 0 && deduce(onlyA, remainingA - remainingB, a)) return requeue(a);
+          if (onlyA != 0 && remainingA - remainingB == Long.bitCount(onlyA)) {
+            deduceAll(onlyA, true, a);
+            deduceAll(onlyB, false, a);
+            return requeue(a);
+          }
+          if (onlyB != 0 && remainingB - remainingA == Long.bitCount(onlyB)) {
+            deduceAll(onlyB, true, a);
+            deduceAll(onlyA, false, a);
+            return requeue(a);
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Queue a constraint for pair examination again after it yielded a deduction, since it may yield
+   * more.
+   *
+   * @param index the row-major index of the checked grid
+   * @return <code>true</code>
+   */
+  private boolean requeue(int index) {
+    if ((queued[index] & 2) == 0) pairs[nPairs++] = index;
+    queued[index] |= 2;
+    return true;
+  }
+
+  /**
+   * Get the number of adjacent mines of a checked grid not deduced yet.
+   *
+   * @param index the row-major index of the checked grid
+   * @return number of remaining mines
+   */
+  private int remaining(int index) {
+    return (board.getCell(index) & Board.N_ADJ_MINE) - nMines[index];
+  }
+
+  /**
+   * Get the unknown neighbors of a checked grid as bits of a 7x7 window of grids, in which pairs of
+   * constraints at most two rows and columns apart are compared.
+   *
+   * @param index the row-major index of the checked grid
+   * @param wy the y coordinate of the grid within the window
+   * @param wx the x coordinate of the grid within the window
+   * @return mask of the unknown neighbors, bit <i>y * 7 + x</i> for each
+   */
+  private long unknownMask(int index, int wy, int wx) {
+    long mask = 0;
+    for (int m = neighborMasks[index] & 0xFF; m != 0; m &= m - 1) {
+      int direction = Integer.numberOfTrailingZeros(m);
+      if (state[index + offsets[direction]] != UNKNOWN) continue;
+      mask |= 1L << ((wy + DY[direction]) * FRAME + wx + DX[direction]);
+    }
+    return mask;
+  }
+
+  /**
+   * Deduce the grids of a window mask when the number of mines among them is known and is either
+   * none or all of them.
+   *
+   * @param mask the grids, as bits of the window
+   * @param mines the number of mines among the grids
+   * @param center the row-major index of the grid at the center of the window
+   * @return <code>true</code> if the grids were deduced
+   */
+  private boolean deduce(long mask, int mines, int center) {
+    if (mask == 0 || (mines != 0 && mines != Long.bitCount(mask))) return false;
+    deduceAll(mask, mines != 0, center);
+    return true;
+  }
+
+  /**
+   * Deduce every grid of a window mask to be a mine or safe.
+   *
+   * @param mask the grids, as bits of the window
+   * @param mine <code>true</code> if the grids contain mines; <code>false</code> if they are safe
+   * @param center the row-major index of the grid at the center of the window
+   */
+  private void deduceAll(long mask, boolean mine, int center) {
+    for (; mask != 0; mask &= mask - 1) {
+      int bit = Long.numberOfTrailingZeros(mask);
+      deduce(center + (bit / FRAME - FRAME / 2) * width + bit % FRAME - FRAME / 2, mine);
+    }
+  }
+
+  /**
+   * Record the deduction of a grid. A safe grid is queued to be checked, and the checked
+   * neighbors of a mine are queued for examination since their remaining mines changed.
+   *
+   * @param index the row-major index of the grid
+   * @param mine <code>true</code> if the grid contains a mine; <code>false</code> if it is safe
+   */
+  private void deduce(int index, boolean mine) {
+    if (state[index] != UNKNOWN) return;
+    if (!mine) {
+      learn(index, SAFE);
+      safe[nSafe++] = index;
+      return;
+    }
+    learn(index, MINE);
+    nDeducedMines++;
+    for (int m = neighborMasks[index] & 0xFF; m != 0; m &= m - 1) {
+      int neighbor = index + offsets[Integer.numberOfTrailingZeros(m)];
+      if (state[neighbor] == REVEALED) enqueue(neighbor);
+    }
+  }
+
+  /**
+   * Apply the global constraint of the total number of mines: once every mine is deduced, every
+   * unknown grid is safe.
+   *
+   * @return <code>true</code> if a grid was deduced
+   */
+  private boolean countMines() {
+    if (nDeducedMines != board.getNMines()) return false;
+    int size = board.size();
+    for (int i = 0; i < size; i++) deduce(i, false);
+    return nSafe > 0;
+  }
+
+  /**
+   * Get the unknown grids next to a checked grid, where the last game stopped. After {@link
+   * #solveWithoutGuessing(GameEngine, int, int)} returns <code>false</code>, none of them can be
+   * deduced from what is visible.
+   *
+   * @return the row-major indexes of the grids
+   */
+  int[] getFrontier() {
+    int size = board.size();
+    int[] frontier = new int[size];
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      if (state[i] != UNKNOWN) continue;
+      for (int m = neighborMasks[i] & 0xFF; m != 0; m &= m - 1) {
+        if (state[i + offsets[Integer.numberOfTrailingZeros(m)]] == REVEALED) {
+          frontier[n++] = i;
+          break;
+        }
+      }
+    }
+    return Arrays.copyOf(frontier, n);
+  }
+
+  /**
+   * Check the unknown grid least likely to contain a mine. Grids next to constraints take the
+   * highest ratio of remaining mines to unknown neighbors among their constraints, and the other
+   * grids take the density of the mines that are not deduced yet.
+   */
+  private void guess() {
+    int size = board.size();
+    int unknown = 0;
+    for (int i = 0; i < size; i++) {
+      risk[i] = -1;
+      if (state[i] == UNKNOWN) unknown++;
+    }
+    for (int i = 0; i < size; i++) {
+      if (state[i] != REVEALED || nUnknown[i] == 0) continue;
+      float ratio = (float) remaining(i) / nUnknown[i];
+      for (int m = neighborMasks[i] & 0xFF; m != 0; m &= m - 1) {
+        int neighbor = i + offsets[Integer.numberOfTrailingZeros(m)];
+        if (state[neighbor] == UNKNOWN) risk[neighbor] = Math.max(risk[neighbor], ratio);
+      }
+    }
+
+    float density = (float) (board.getNMines() - nDeducedMines) / unknown;
+    int best = -1;
+    float bestRisk = Float.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      if (state[i] != UNKNOWN) continue;
+      float r = risk[i] < 0 ? density : risk[i];
+      if (r < bestRisk) {
+        bestRisk = r;
+        best = i;
+      }
+    }
+    guesses++;
+    check(best);
+  }
+}
@@ -0,0 +1,104 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * BitboardRevealTest checks that every {@link Board.RevealMode} plays a game the same way as the
+ * worklist cascade of {@link Board#checkCell(int)}. Each board is generated once per mode from the
+ * same {@link BoardId}, and the same random checks, chords and marks are made on every copy. After
+ * each move, every copy must have returned the same result, hold the same cells and the same number
+ * of grids left to check, and report the same changed grids. Widths are drawn on both sides of 64
+ * so that {@link BitboardReveal} is checked across the words of a row.
+ *
+ * <p>Usage: <code>java minesweeper.BitboardRevealTest</code>. It exits with an {@link
+ * AssertionError} on the first mismatch.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BitboardRevealTest {
+  /** Number of boards checked */
+  private static final int BOARDS = 300;
+  /** Number of moves made on each board */
+  private static final int MOVES = 200;
+  /** The modes compared, the worklist first */
+  private static final Board.RevealMode[] MODES = Board.RevealMode.values();
+
+  /**
+   * Play one board in every mode and compare the copies after each move.
+   *
+   * @param seed the seed of the board and of the moves
+   */
+  private static void check(long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    int height = 1 + random.nextInt(150);
+    int width = 1 + random.nextInt(200);
+    int nMines = (int) ((long) height * width * random.nextInt(26) / 100);
+    BoardId id = new BoardId(height, width, nMines, seed);
+    Board[] boards = new Board[MODES.length];
+    for (int i = 0; i < MODES.length; i++) {
+      boards[i] = id.generate();
+      boards[i].setRevealMode(MODES[i]);
+    }
+
+    for (int move = 0; move < MOVES; move++) {
+      int index = random.nextInt(height * width);
+      int action = random.nextInt(8);
+      boolean expected = play(boards[0], index, action);
+      int[] changed = boards[0].takeChangedGrids();
+      for (int i = 1; i < MODES.length; i++) {
+        String where = MODES[i] + " board " + seed + ", move " + move + ": ";
+        if (play(boards[i], index, action) != expected) {
+          throw new AssertionError(where + "result differs");
+        }
+        if (boards[i].getGridToCheck() != boards[0].getGridToCheck()) {
+          throw new AssertionError(where + "grids left to check differ");
+        }
+        for (int grid = 0; grid < height * width; grid++) {
+          if (boards[i].getCell(grid) != boards[0].getCell(grid)) {
+            throw new AssertionError(where + "grid " + grid + " differs");
+          }
+        }
+        if (!Arrays.equals(boards[i].takeChangedGrids(), changed)) {
+          throw new AssertionError(where + "changed grids differ");
+        }
+      }
+    }
+  }
+
+  /**
+   * Make one move: mostly checks, then chords of checked grids and marks of unchecked grids, which
+   * are the only grids {@link GameEngine} marks.
+   *
+   * @param board the board
+   * @param index the row-major index of the grid
+   * @param action the kind of move, from 0 to 7
+   * @return the result of a check or chord, or <code>true</code> for a mark
+   */
+  private static boolean play(Board board, int index, int action) {
+    Grid grid = board.getGrid(index / board.getWidth(), index % board.getWidth());
+    if (action < 3 && grid.isChecked()) return true;
+    switch (action) {
+      case 0:
+        grid.markAsMine();
+        return true;
+      case 1:
+        grid.markAsQuestion();
+        return true;
+      case 2:
+        grid.unmark();
+        return true;
+      case 3:
+        return !grid.isChecked() || grid.chordGrid();
+      default:
+        return grid.checkGrid();
+    }
+  }
+
+  public static void main(String[] args) {
+    for (int b = 0; b < BOARDS; b++) check(b);
+    System.out.println(BOARDS + " boards match in " + MODES.length + " modes");
+  }
+}
@@ -0,0 +1,126 @@
+package minesweeper;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * BoardCodecTest checks that a client decoding the messages of {@link BoardCodec} always sees the
+ * board as it is. Random games are played through {@link GameEngine} in every {@link
+ * Board.RevealMode}; the client starts from a full message and applies a delta message after each
+ * move, and from time to time a full message instead. After every message, the client's codes
+ * must match codes computed from the cells of the board, with the mines shown once the game is
+ * over. Messages cut short must be rejected rather than decoded.
+ *
+ * <p>Usage: <code>java minesweeper.BoardCodecTest</code>. It exits with an {@link AssertionError}
+ * on the first mismatch.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class BoardCodecTest {
+  /** Number of games played */
+  private static final int GAMES = 600;
+  /** Largest number of moves of a game */
+  private static final int MOVES = 300;
+  /** Number of moves between two full messages */
+  private static final int FULL_INTERVAL = 25;
+  /** Number of prefixes of a message checked to be rejected */
+  private static final int PREFIXES = 32;
+  /** Actions of the moves, by ordinal */
+  private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+  /** The reveal modes, by ordinal */
+  private static final Board.RevealMode[] MODES = Board.RevealMode.values();
+
+  /**
+   * Play one game and check the client's codes after every message.
+   *
+   * @param seed the seed of the board and of the moves
+   */
+  private static void check(long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    int height = 1 + random.nextInt(100);
+    int width = 1 + random.nextInt(100);
+    int nMines = (int) ((long) height * width * random.nextInt(30) / 100);
+    Board board = new BoardId(height, width, nMines, seed).generate();
+    board.setRevealMode(MODES[random.nextInt(MODES.length)]);
+    GameEngine engine = new GameEngine(board);
+    BoardCodec codec = new BoardCodec(board);
+    byte[] client = new byte[height * width];
+
+    decode(codec.encodeFull(false), client, seed);
+    compare(board, client, false, seed);
+    for (int move = 0; move < MOVES && !engine.isGameOver(); move++) {
+      GameEngine.Action action = ACTIONS[random.nextInt(ACTIONS.length)];
+      engine.apply(action, random.nextInt(height), random.nextInt(width));
+      boolean over = engine.isGameOver();
+      if (over || move % FULL_INTERVAL == FULL_INTERVAL - 1) {
+        decode(codec.encodeFull(over), client, seed);
+      } else {
+        decode(codec.encodeDelta(false), client, seed);
+      }
+      compare(board, client, over, seed);
+    }
+  }
+
+  /**
+   * Decode a message into the client's codes, after checking that shorter prefixes of it are
+   * rejected: about {@link #PREFIXES} of them spread over its length, and the one missing only its
+   * last byte.
+   *
+   * @param message the message
+   * @param client the client's codes
+   * @param seed the seed of the game, for failure messages
+   */
+  private static void decode(ByteBuffer message, byte[] client, long seed) {
+    int step = Math.max(1, message.remaining() / PREFIXES);
+    for (int length = 0; length < message.remaining(); length += step) {
+      if (length + step >= message.remaining()) length = message.remaining() - 1;
+      ByteBuffer prefix = message.duplicate();
+      prefix.limit(prefix.position() + length);
+      try {
+        BoardCodec.decode(prefix, client.clone());
+      } catch (IllegalArgumentException iae) {
+        continue;
+      }
+      throw new AssertionError("Game " + seed + ": message of " + length + " bytes decoded");
+    }
+    BoardCodec.decode(message, client);
+  }
+
+  /**
+   * Compare the client's codes with the codes of the board's cells.
+   *
+   * @param board the board
+   * @param client the client's codes
+   * @param showAnswer if the game is over, so that mines are shown
+   * @param seed the seed of the game, for failure messages
+   */
+  private static void compare(Board board, byte[] client, boolean showAnswer, long seed) {
+    for (int i = 0; i < client.length; i++) {
+      if (client[i] != code(board.getCell(i), showAnswer)) {
+        throw new AssertionError("Game " + seed + ": grid " + i + " decoded as " + client[i]);
+      }
+    }
+  }
+
+  /**
+   * Get the code a player sees for a packed cell.
+   *
+   * @param cell the packed cell
+   * @param showAnswer if the game is over, so that mines are shown
+   * @return the code
+   */
+  private static int code(int cell, boolean showAnswer) {
+    if ((cell & Board.MARKED_MINE) != 0) return BoardCodec.FLAG;
+    if ((cell & Board.MARKED_QUESTION) != 0) return BoardCodec.QUESTION;
+    if ((cell & Board.CHECKED) != 0) return cell & Board.N_ADJ_MINE;
+    if (showAnswer && (cell & Board.MINE) != 0) return BoardCodec.MINE;
+    return BoardCodec.HIDDEN;
+  }
+
+  public static void main(String[] args) {
+    for (int g = 0; g < GAMES; g++) check(g);
+    System.out.println(GAMES + " games decoded as played");
+  }
+}
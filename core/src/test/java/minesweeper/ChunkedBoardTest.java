@@ -0,0 +1,99 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+
+/**
+ * ChunkedBoardTest checks that {@link ChunkedBoard} keeps no more tiles generated than its limit,
+ * even during a cascade that opens far more tiles than that, and that evicting tiles does not
+ * change the game: the same board played with a tight and with an unbounded tile limit must end
+ * up with the same grids checked and marked.
+ *
+ * <p>Usage: <code>java minesweeper.ChunkedBoardTest</code>. It exits with an {@link AssertionError}
+ * on the first failure.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ChunkedBoardTest {
+  /** Tile limit of the boards with evictions */
+  private static final int MAX_TILES = 16;
+  /** Side of the board opened by a single check */
+  private static final long OPENING_SIDE = 2048;
+  /** Side of the boards played with and without evictions */
+  private static final long PLAYED_SIDE = 512;
+  /** Number of boards played with and without evictions */
+  private static final int BOARDS = 20;
+  /** Number of moves played on each board */
+  private static final int MOVES = 200;
+
+  /** A board without mines opens entirely from one check, far beyond the tile limit. */
+  private static void largeOpening() {
+    ChunkedBoard board = new ChunkedBoard(OPENING_SIDE, OPENING_SIDE, 0.0, 1, MAX_TILES);
+    if (!board.checkGrid(0, 0)) throw new AssertionError("A board without mines lost");
+    if (board.getGeneratedTiles() > MAX_TILES) {
+      throw new AssertionError(board.getGeneratedTiles() + " tiles generated after the opening");
+    }
+    if (board.getGridToCheck() != 0) {
+      throw new AssertionError(board.getGridToCheck() + " grids left after the opening");
+    }
+    for (long y = 0; y < OPENING_SIDE; y += 61) {
+      for (long x = 0; x < OPENING_SIDE; x += 67) {
+        if ((board.getCell(y, x) & Board.CHECKED) == 0) {
+          throw new AssertionError("Grid " + y + " " + x + " lost its check on eviction");
+        }
+      }
+    }
+  }
+
+  /**
+   * Play the same random moves on a board with a tight tile limit and on one that never evicts,
+   * and compare every grid.
+   *
+   * @param seed the seed of the board and of the moves
+   */
+  private static void sameGame(long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    double density = 0.05 + random.nextDouble() * 0.15;
+    ChunkedBoard evicting = new ChunkedBoard(PLAYED_SIDE, PLAYED_SIDE, density, seed, MAX_TILES);
+    ChunkedBoard kept = new ChunkedBoard(PLAYED_SIDE, PLAYED_SIDE, density, seed, 1 << 16);
+    for (int move = 0; move < MOVES; move++) {
+      long y = random.nextLong(PLAYED_SIDE);
+      long x = random.nextLong(PLAYED_SIDE);
+      switch (random.nextInt(4)) {
+        case 0:
+          evicting.markAsMine(y, x);
+          kept.markAsMine(y, x);
+          break;
+        case 1:
+          evicting.markAsQuestion(y, x);
+          kept.markAsQuestion(y, x);
+          break;
+        default:
+          if (evicting.checkGrid(y, x) != kept.checkGrid(y, x)) {
+            throw new AssertionError("Board " + seed + ": check of " + y + " " + x + " differs");
+          }
+      }
+      if (evicting.getGeneratedTiles() > MAX_TILES) {
+        throw new AssertionError("Board " + seed + ": " + evicting.getGeneratedTiles() + " tiles");
+      }
+    }
+    if (evicting.getGridToCheck() != kept.getGridToCheck()) {
+      throw new AssertionError("Board " + seed + ": grids left to check differ");
+    }
+    for (long y = 0; y < PLAYED_SIDE; y++) {
+      for (long x = 0; x < PLAYED_SIDE; x++) {
+        if (evicting.getCell(y, x) != kept.getCell(y, x)) {
+          throw new AssertionError("Board " + seed + ": grid " + y + " " + x + " differs");
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    largeOpening();
+    for (int b = 0; b < BOARDS; b++) sameGame(b);
+    System.out.println(
+        "Opening of " + OPENING_SIDE + "x" + OPENING_SIDE + " and " + BOARDS + " games match");
+  }
+}
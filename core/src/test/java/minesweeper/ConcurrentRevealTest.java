@@ -0,0 +1,142 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentRevealTest checks that a {@link Board.RevealMode#CONCURRENT} board checked by many
+ * threads at once ends up exactly as the same board checked by one thread with the worklist. Each
+ * board is generated twice from the same {@link BoardId}. On one copy, several threads check
+ * random safe grids and mark random mines at the same time, while another thread keeps taking the
+ * changed grids; on the other copy, the same moves are made one after the other. Both copies must
+ * then have the same grids checked and marked, and the same number of grids left to check, and the
+ * changed grids taken must be exactly the grids changed. The grids each check reports as checked
+ * by itself must add up to the grids checked, with no grid counted by two threads.
+ *
+ * <p>Usage: <code>java minesweeper.ConcurrentRevealTest</code>. It exits with an {@link
+ * AssertionError} on the first mismatch.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ConcurrentRevealTest {
+  /** Number of boards checked */
+  private static final int BOARDS = 40;
+  /** Number of threads checking each concurrent board */
+  private static final int THREADS = 8;
+  /** Number of moves of each thread */
+  private static final int MOVES = 64;
+
+  /**
+   * Play one board concurrently and sequentially and compare the results.
+   *
+   * @param seed the seed of the board and of the moves
+   * @throws InterruptedException if interrupted while waiting for the threads
+   */
+  private static void check(long seed) throws InterruptedException {
+    SplittableRandom random = new SplittableRandom(seed);
+    int height = 64 + random.nextInt(192);
+    int width = 64 + random.nextInt(192);
+    int nMines = height * width * (8 + random.nextInt(10)) / 100;
+    BoardId id = new BoardId(height, width, nMines, seed);
+    Board concurrent = id.generate();
+    Board sequential = id.generate();
+    concurrent.setRevealMode(Board.RevealMode.CONCURRENT);
+
+    int[][] moves = new int[THREADS][MOVES];
+    for (int[] thread : moves) {
+      for (int i = 0; i < MOVES; i++) thread[i] = random.nextInt(height * width);
+    }
+
+    int before = concurrent.getGridToCheck();
+    LongAdder counted = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> players = new ArrayList<>();
+    for (int[] thread : moves) {
+      players.add(
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException ie) {
+                  return;
+                }
+                for (int index : thread) counted.add(play(concurrent, index));
+              }));
+    }
+    BitSet taken = new BitSet();
+    AtomicBoolean playing = new AtomicBoolean(true);
+    Thread taker =
+        new Thread(
+            () -> {
+              while (playing.get()) {
+                for (int grid : concurrent.takeChangedGrids()) taken.set(grid);
+              }
+            });
+    for (Thread player : players) player.start();
+    taker.start();
+    start.countDown();
+    for (Thread player : players) player.join();
+    playing.set(false);
+    taker.join();
+    for (int grid : concurrent.takeChangedGrids()) taken.set(grid);
+
+    for (int[] thread : moves) {
+      for (int index : thread) play(sequential, index);
+    }
+    if (concurrent.getGridToCheck() != sequential.getGridToCheck()) {
+      throw new AssertionError(
+          "Board "
+              + seed
+              + ": "
+              + concurrent.getGridToCheck()
+              + " grids left instead of "
+              + sequential.getGridToCheck());
+    }
+    if (counted.sum() != before - concurrent.getGridToCheck()) {
+      throw new AssertionError("Board " + seed + ": " + counted.sum() + " grids counted");
+    }
+    int[] changed = sequential.takeChangedGrids();
+    for (int i = 0; i < sequential.size(); i++) {
+      if (concurrent.getCell(i) != sequential.getCell(i)) {
+        throw new AssertionError("Board " + seed + ": grid " + i + " differs");
+      }
+    }
+    int[] takenGrids = taken.stream().toArray();
+    if (!Arrays.equals(takenGrids, changed)) {
+      throw new AssertionError(
+          "Board " + seed + ": " + takenGrids.length + " changes taken of " + changed.length);
+    }
+  }
+
+  /**
+   * Make one move: check a grid without a mine, or mark a mine. Mines are never checked, and safe
+   * grids never marked, so the result does not depend on the order of the moves.
+   *
+   * @param board the board
+   * @param index the row-major index of the grid
+   * @return the number of grids checked by the move
+   */
+  private static int play(Board board, int index) {
+    Grid grid = board.getGrid(index / board.getWidth(), index % board.getWidth());
+    if (grid.isMine()) {
+      grid.markAsMine();
+      return 0;
+    }
+    int revealed = grid.check();
+    if (revealed < 0) throw new AssertionError("Grid " + index + " held a mine");
+    return revealed;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    for (int b = 0; b < BOARDS; b++) check(b);
+    System.out.println(BOARDS + " boards match with " + THREADS + " threads");
+  }
+}
@@ -0,0 +1,169 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * MoveJournalTest checks that {@link MoveJournal} brings back the game it recorded. Random games
+ * are played through a journal, with and without snapshots, and replayed from the file; the
+ * replayed game must match the game played. The journal is then cut at random points, in the
+ * middle of a record as a crash would leave it, and recovered with {@link MoveJournal#open(Path,
+ * int, int)}: the recovered game must match the same board played with only the moves before the
+ * cut, and must go on recording from there.
+ *
+ * <p>Usage: <code>java minesweeper.MoveJournalTest</code>. It exits with an {@link AssertionError}
+ * on the first mismatch. Journals are written to a temporary directory, deleted at the end.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class MoveJournalTest {
+  /** Number of games played */
+  private static final int GAMES = 60;
+  /** Number of moves tried in each game */
+  private static final int MOVES = 400;
+  /** Number of cuts of each journal */
+  private static final int CUTS = 4;
+  /** Size of the header of a journal */
+  private static final int HEADER = 32;
+  /** Size of a record of a journal */
+  private static final int RECORD = 8;
+  /** Actions of the moves, by ordinal */
+  private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+  /** A move recorded by a journal. */
+  private static class Move {
+    private final GameEngine.Action action;
+    private final int y;
+    private final int x;
+
+    private Move(GameEngine.Action action, int y, int x) {
+      this.action = action;
+      this.y = y;
+      this.x = x;
+    }
+  }
+
+  /**
+   * Play one game through a journal, replay it, then cut and recover it.
+   *
+   * @param directory the directory of the journal
+   * @param seed the seed of the board and of the moves
+   * @throws IOException On input or output error
+   */
+  private static void check(Path directory, long seed) throws IOException {
+    SplittableRandom random = new SplittableRandom(seed);
+    int height = 8 + random.nextInt(40);
+    int width = 8 + random.nextInt(40);
+    int nMines = height * width * (5 + random.nextInt(15)) / 100;
+    BoardId id = new BoardId(height, width, nMines, seed);
+    int syncInterval = 1 + random.nextInt(16);
+    int snapshotInterval = random.nextBoolean() ? 0 : 1 + random.nextInt(64);
+    Path path = directory.resolve("game-" + seed);
+
+    List<Move> recorded = new ArrayList<>();
+    GameEngine played;
+    try (MoveJournal journal = MoveJournal.create(path, id, syncInterval, snapshotInterval)) {
+      played = journal.getEngine();
+      for (int i = 0; i < MOVES; i++) {
+        Move move =
+            new Move(
+                ACTIONS[random.nextInt(ACTIONS.length)],
+                random.nextInt(height),
+                random.nextInt(width));
+        switch (journal.apply(move.action, move.y, move.x)) {
+          case OK:
+          case WON:
+          case LOST:
+            recorded.add(move);
+            break;
+          default:
+        }
+      }
+      if (journal.getMoves() != recorded.size()) {
+        throw new AssertionError("Game " + seed + ": " + journal.getMoves() + " moves recorded");
+      }
+    }
+    compare(MoveJournal.replay(path), played, "Game " + seed + " replayed");
+
+    byte[] whole = Files.readAllBytes(path);
+    for (int c = 0; c < CUTS && !recorded.isEmpty(); c++) {
+      int kept = random.nextInt(recorded.size());
+      int torn = random.nextInt(RECORD);
+      Files.write(path, whole);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(HEADER + (long) kept * RECORD + torn);
+      }
+
+      GameEngine expected = new GameEngine(id.generate());
+      for (Move move : recorded.subList(0, kept)) expected.apply(move.action, move.y, move.x);
+      String where = "Game " + seed + " cut after " + kept + " moves";
+      try (MoveJournal journal = MoveJournal.open(path, syncInterval, snapshotInterval)) {
+        if (journal.getMoves() != kept) {
+          throw new AssertionError(where + ": " + journal.getMoves() + " moves recovered");
+        }
+        compare(journal.getEngine(), expected, where);
+        for (Move move : recorded.subList(kept, recorded.size())) {
+          journal.apply(move.action, move.y, move.x);
+        }
+      }
+      if (Files.size(path) != whole.length) {
+        throw new AssertionError(where + ": journal not recorded again in place of the torn one");
+      }
+      compare(MoveJournal.replay(path), played, where + " and played again");
+    }
+  }
+
+  /**
+   * Compare two games grid by grid.
+   *
+   * @param actual the game recovered from a journal
+   * @param expected the game played
+   * @param where the game and the step, for failure messages
+   */
+  private static void compare(GameEngine actual, GameEngine expected, String where) {
+    Board a = actual.getBoard();
+    Board e = expected.getBoard();
+    if (a.getGridToCheck() != e.getGridToCheck()
+        || actual.getNLeftMine() != expected.getNLeftMine()
+        || actual.isGameOver() != expected.isGameOver()) {
+      throw new AssertionError(where + ": game state differs");
+    }
+    for (int i = 0; i < e.size(); i++) {
+      if (a.getCell(i) != e.getCell(i)) {
+        throw new AssertionError(where + ": grid " + i + " differs");
+      }
+    }
+  }
+
+  /**
+   * Delete a directory and the files in it.
+   *
+   * @param directory the directory
+   * @throws IOException On output error
+   */
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+    }
+    Files.delete(directory);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path directory = Files.createTempDirectory("journal-test");
+    try {
+      for (int g = 0; g < GAMES; g++) check(directory, g);
+    } finally {
+      delete(directory);
+    }
+    System.out.println(GAMES + " games replayed and recovered from " + CUTS + " cuts each");
+  }
+}
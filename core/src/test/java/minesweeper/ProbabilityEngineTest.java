@@ -0,0 +1,216 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * ProbabilityEngineTest checks {@link ProbabilityEngine} against an exhaustive enumeration of
+ * every placement of the mines that agrees with what the player sees. Small boards are generated
+ * from fixed seeds and partly checked, and the probability of every grid must match the share of
+ * placements in which it holds a mine. The boards must include frontiers split into several
+ * components, whose combination is where the engine differs most from a single enumeration.
+ *
+ * <p>Large boards, whose frontier components are too large to enumerate and are cut into pieces,
+ * cannot be enumerated exhaustively. Their probabilities are approximations, so they are only
+ * checked to be probabilities that add up to the number of mines.
+ *
+ * <p>Usage: <code>java minesweeper.ProbabilityEngineTest</code>. It exits with an {@link
+ * AssertionError} on the first mismatch.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class ProbabilityEngineTest {
+  /** Largest difference allowed between a computed and an enumerated probability */
+  private static final double TOLERANCE = 1e-9;
+  /** Number of boards checked */
+  private static final int BOARDS = 2000;
+  /** Number of large boards checked */
+  private static final int LARGE_BOARDS = 20;
+  /** Side of the large boards */
+  private static final int LARGE_SIDE = 100;
+
+  /**
+   * Count every placement of the mines among the unchecked grids that agrees with the adjacent
+   * mines of the checked grids, and how many of them place a mine in each grid.
+   *
+   * @param board the board
+   * @return the probability of each grid, in row-major order; 0 for checked grids
+   */
+  private static double[] enumerate(Board board) {
+    int size = board.size();
+    int[] unchecked = new int[size];
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      if ((board.getCell(i) & Board.CHECKED) == 0) unchecked[n++] = i;
+    }
+    long[] hits = new long[size];
+    long[] total = new long[1];
+    boolean[] mine = new boolean[size];
+    place(board, Arrays.copyOf(unchecked, n), 0, board.getNMines(), mine, hits, total);
+    double[] probabilities = new double[size];
+    for (int i = 0; i < size; i++) probabilities[i] = (double) hits[i] / total[0];
+    return probabilities;
+  }
+
+  /**
+   * Place the remaining mines among the unchecked grids from the given one on, counting every
+   * complete placement that agrees with the checked grids.
+   *
+   * @param board the board
+   * @param unchecked the unchecked grids
+   * @param from the index of the next unchecked grid
+   * @param left the number of mines left to place
+   * @param mine the grids holding a mine in the current placement
+   * @param hits receives the number of placements with a mine in each grid
+   * @param total receives the number of placements
+   */
+  private static void place(
+      Board board,
+      int[] unchecked,
+      int from,
+      int left,
+      boolean[] mine,
+      long[] hits,
+      long[] total) {
+    if (left == 0) {
+      if (!agrees(board, mine)) return;
+      total[0]++;
+      for (int i = 0; i < mine.length; i++) if (mine[i]) hits[i]++;
+      return;
+    }
+    for (int i = from; i <= unchecked.length - left; i++) {
+      mine[unchecked[i]] = true;
+      place(board, unchecked, i + 1, left - 1, mine, hits, total);
+      mine[unchecked[i]] = false;
+    }
+  }
+
+  /**
+   * Determine if a placement of the mines agrees with every checked grid.
+   *
+   * @param board the board
+   * @param mine the grids holding a mine
+   * @return <code>true</code> if every checked grid has as many adjacent mines as it shows
+   */
+  private static boolean agrees(Board board, boolean[] mine) {
+    for (int i = 0; i < mine.length; i++) {
+      int cell = board.getCell(i);
+      if ((cell & Board.CHECKED) == 0) continue;
+      int count = 0;
+      for (int m = board.getNeighborMask(i); m != 0; m &= m - 1) {
+        if (mine[board.getNeighbor(i, Integer.numberOfTrailingZeros(m))]) count++;
+      }
+      if (count != (cell & Board.N_ADJ_MINE)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Count the components of the frontier: the unchecked grids next to a checked grid, linked when
+   * they are next to the same checked grid with adjacent mines.
+   *
+   * @param board the board
+   * @return number of components
+   */
+  private static int components(Board board) {
+    int size = board.size();
+    int[] parent = new int[size];
+    Arrays.fill(parent, -1);
+    for (int i = 0; i < size; i++) {
+      int cell = board.getCell(i);
+      if ((cell & Board.CHECKED) == 0 || (cell & Board.N_ADJ_MINE) == 0) continue;
+      int first = -1;
+      for (int m = board.getNeighborMask(i); m != 0; m &= m - 1) {
+        int neighbor = board.getNeighbor(i, Integer.numberOfTrailingZeros(m));
+        if ((board.getCell(neighbor) & Board.CHECKED) != 0) continue;
+        if (parent[neighbor] < 0) parent[neighbor] = neighbor;
+        if (first < 0) first = neighbor;
+        else parent[root(parent, first)] = root(parent, neighbor);
+      }
+    }
+    int count = 0;
+    for (int i = 0; i < size; i++) if (parent[i] == i) count++;
+    return count;
+  }
+
+  /**
+   * Find the root of a grid's component.
+   *
+   * @param parent the parent of each frontier grid
+   * @param i the grid
+   * @return the root grid
+   */
+  private static int root(int[] parent, int i) {
+    while (parent[i] != i) i = parent[i];
+    return i;
+  }
+
+  /**
+   * Check the probabilities of large boards, checked at random until their frontier has
+   * components too large to be enumerated as a whole.
+   *
+   * @param random the random generator of the boards and checks
+   * @return number of boards whose components were cut into pieces
+   */
+  private static int largeBoards(SplittableRandom random) {
+    int cut = 0;
+    for (int b = 0; b < LARGE_BOARDS; b++) {
+      int nMines = LARGE_SIDE * LARGE_SIDE * (10 + random.nextInt(8)) / 100;
+      Board board = new Board(LARGE_SIDE, LARGE_SIDE, nMines, random.split());
+      board.initBoard();
+      for (int checks = 300; checks > 0; checks--) {
+        int index = random.nextInt(board.size());
+        if ((board.getCell(index) & Board.MINE) != 0) continue;
+        board.getGrid(index / LARGE_SIDE, index % LARGE_SIDE).checkGrid();
+      }
+      ProbabilityEngine engine = new ProbabilityEngine(board);
+      double sum = 0;
+      for (double probability : engine.mineProbabilities()) {
+        if (!(probability >= -TOLERANCE && probability <= 1 + TOLERANCE)) {
+          throw new AssertionError("Large board " + b + ": probability " + probability);
+        }
+        sum += probability;
+      }
+      if (Math.abs(sum - nMines) > nMines * TOLERANCE) {
+        throw new AssertionError("Large board " + b + ": probabilities add up to " + sum);
+      }
+      if (engine.getCut() > 0) cut++;
+    }
+    return cut;
+  }
+
+  public static void main(String[] args) {
+    SplittableRandom random = new SplittableRandom(42);
+    int split = 0;
+    for (int b = 0; b < BOARDS; b++) {
+      int height = 4 + random.nextInt(3);
+      int width = 4 + random.nextInt(3);
+      int nMines = 2 + random.nextInt(5);
+      Board board = new Board(height, width, nMines, random.split());
+      board.initBoard();
+      for (int checks = 1 + random.nextInt(4); checks > 0; checks--) {
+        int index = random.nextInt(board.size());
+        if ((board.getCell(index) & Board.MINE) != 0) continue;
+        board.getGrid(index / width, index % width).checkGrid();
+      }
+      if (board.getGridToCheck() == 0) continue;
+      if (components(board) > 1) split++;
+
+      double[] expected = enumerate(board);
+      double[] actual = new ProbabilityEngine(board).mineProbabilities();
+      for (int i = 0; i < board.size(); i++) {
+        if (Math.abs(expected[i] - actual[i]) > TOLERANCE) {
+          throw new AssertionError(
+              "Board " + b + ", grid " + i + ": " + actual[i] + " instead of " + expected[i]);
+        }
+      }
+    }
+    if (split == 0) throw new AssertionError("No board had several frontier components");
+    int cut = largeBoards(random);
+    if (cut == 0) throw new AssertionError("No large board had components cut into pieces");
+    System.out.println(BOARDS + " boards match, " + split + " with several frontier components");
+    System.out.println(LARGE_BOARDS + " large boards add up, " + cut + " with components cut");
+  }
+}
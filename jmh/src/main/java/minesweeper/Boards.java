@@ -0,0 +1,82 @@
+package minesweeper;
+
+/**
+ * Boards holds what the JMH benchmarks share: the board sizes they run across and the boards they
+ * start from.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+final class Boards {
+  /** Mine density, in percent, of an expert board */
+  static final int EXPERT_DENSITY = 20;
+
+  private Boards() {}
+
+  /**
+   * Parse a board size.
+   *
+   * @param size the size, as <code>HEIGHTxWIDTH</code>
+   * @return the height and the width
+   * @throws IllegalArgumentException if the size is malformed
+   */
+  static int[] parseSize(String size) {
+    int separator = size.indexOf('x');
+    if (separator < 0) throw new IllegalArgumentException("Size must be HEIGHTxWIDTH: " + size);
+    int height = Integer.parseInt(size.substring(0, separator));
+    return new int[] {height, Integer.parseInt(size.substring(separator + 1))};
+  }
+
+  /**
+   * Get the number of mines of a board with the given density.
+   *
+   * @param size the height and the width of the board
+   * @param density the mine density in percent
+   * @return number of mines
+   */
+  static int nMines(int[] size, int density) {
+    return (int) ((long) size[0] * size[1] * density / 100);
+  }
+
+  /**
+   * Generate a board with the given density from a fixed seed, so that every run measures the
+   * same board.
+   *
+   * @param size the height and the width of the board
+   * @param density the mine density in percent
+   * @return the generated board
+   */
+  static Board generate(int[] size, int density) {
+    return new BoardId(size[0], size[1], nMines(size, density), 42).generate();
+  }
+
+  /**
+   * Find the first grid without a mine or adjacent mines, falling back to the first grid without
+   * a mine.
+   *
+   * @param board the board to search
+   * @return a grid to start a cascade from
+   */
+  static Grid findEmptyGrid(Board board) {
+    int fallback = -1;
+    for (int index = 0; index < board.size(); index++) {
+      int cell = board.getCell(index);
+      if ((cell & Board.MINE) != 0) continue;
+      if ((cell & Board.N_ADJ_MINE) == 0) return gridAt(board, index);
+      if (fallback < 0) fallback = index;
+    }
+    return gridAt(board, fallback);
+  }
+
+  /**
+   * Get the grid at the given index.
+   *
+   * @param board the board holding the grid
+   * @param index the row-major index of the grid
+   * @return view of the grid
+   */
+  static Grid gridAt(Board board, int index) {
+    return board.getGrid(index / board.getWidth(), index % board.getWidth());
+  }
+}
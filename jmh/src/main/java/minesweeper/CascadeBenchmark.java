@@ -0,0 +1,63 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CascadeBenchmark measures {@link Grid#checkGrid()} cascades starting from a grid without adjacent
+ * mines, with each {@link Board.RevealMode}: on a sparse board, where the cascade covers most of
+ * the board, and on an expert density board, where it stops after a few grids. Every check is
+ * undone with {@link Board#clearChecks()} before the next operation, outside of the measurement,
+ * so every operation plays the same cascade. The result is the number of grids checked.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CascadeBenchmark {
+  /** Size of the board, as <code>HEIGHTxWIDTH</code> */
+  @Param({"9x9", "16x30", "100x100", "1000x1000", "10000x10000"})
+  public String size;
+
+  /** Mine density, in percent: sparse or expert */
+  @Param({"1", "20"})
+  public int density;
+
+  /** How the cascade is run */
+  @Param({"WORKLIST", "BITBOARD", "CONCURRENT"})
+  public Board.RevealMode mode;
+
+  private Board board;
+  private Grid start;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    board = Boards.generate(Boards.parseSize(size), density);
+    board.setRevealMode(mode);
+    start = Boards.findEmptyGrid(board);
+  }
+
+  @Setup(Level.Invocation)
+  public void clear() {
+    board.clearChecks();
+  }
+
+  @Benchmark
+  public int checkGrid() {
+    return start.check();
+  }
+}
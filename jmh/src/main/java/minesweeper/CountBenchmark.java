@@ -0,0 +1,49 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CountBenchmark measures a full recount of the adjacent mines of a generated board with {@link
+ * Board#countRows(int, int)}, which isolates the counting cost from mine placement.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ * @see InitBenchmark
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CountBenchmark {
+  /** Size of the board, as <code>HEIGHTxWIDTH</code> */
+  @Param({"9x9", "16x30", "100x100", "1000x1000", "10000x10000"})
+  public String size;
+
+  /** Mine density, in percent */
+  @Param({"1", "20", "90"})
+  public int density;
+
+  private Board board;
+
+  @Setup
+  public void generate() {
+    board = Boards.generate(Boards.parseSize(size), density);
+  }
+
+  @Benchmark
+  public Board countRows() {
+    board.countRows(0, board.getHeight());
+    return board;
+  }
+}
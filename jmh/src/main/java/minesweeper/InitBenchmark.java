@@ -0,0 +1,68 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * InitBenchmark measures filling an empty board with mines: {@link Board#initBoard()}, which plants
+ * the mines and keeps the adjacent mine counts as it goes, and {@link Board#plantMines(int, int,
+ * int, java.util.random.RandomGenerator)}, which places the same number of mines without counting,
+ * so that the cost of the placement alone is known. The board is cleared with {@link
+ * Board#reset()} before every operation, outside of the measurement.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ * @see CountBenchmark
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InitBenchmark {
+  /** Size of the board, as <code>HEIGHTxWIDTH</code> */
+  @Param({"9x9", "16x30", "100x100", "1000x1000", "10000x10000"})
+  public String size;
+
+  /** Mine density, in percent; above half the board, the empty grids are chosen instead */
+  @Param({"1", "20", "90"})
+  public int density;
+
+  private Board board;
+  private SplittableRandom random;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    int[] dimensions = Boards.parseSize(size);
+    random = new SplittableRandom(42);
+    board = new Board(dimensions[0], dimensions[1], Boards.nMines(dimensions, density), random);
+  }
+
+  @Setup(Level.Invocation)
+  public void clear() {
+    board.reset();
+  }
+
+  @Benchmark
+  public Board initBoard() {
+    board.initBoard();
+    return board;
+  }
+
+  @Benchmark
+  public Board plantMines() {
+    board.plantMines(0, board.size(), board.getNMines(), random);
+    return board;
+  }
+}
@@ -0,0 +1,43 @@
+package minesweeper;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JmhMain runs the JMH benchmarks of the game with the GC profiler always on, so that every result
+ * reports the bytes allocated per operation as <code>gc.alloc.rate.norm</code> next to the
+ * throughput.
+ *
+ * <p>Usage: <code>java -jar jmh/target/benchmarks.jar [JMH options] [regexp ...]</code>, for
+ * example <code>java -jar jmh/target/benchmarks.jar Cascade -p size=100x100,1000x1000</code>. The
+ * options are those of JMH's own launcher; <code>-h</code> lists them, and <code>-l</code> lists
+ * the benchmarks.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+public class JmhMain {
+  public static void main(String[] args)
+      throws CommandLineOptionException, IOException, RunnerException {
+    CommandLineOptions options = new CommandLineOptions(args);
+    if (options.shouldHelp()) {
+      options.showHelp();
+    } else if (options.shouldListProfilers()) {
+      options.listProfilers();
+    } else if (options.shouldListResultFormats()) {
+      options.listResultFormats();
+    } else {
+      Runner runner =
+          new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build());
+      if (options.shouldList()) runner.list();
+      else if (options.shouldListWithParams()) runner.listWithParams(options);
+      else runner.run();
+    }
+  }
+}
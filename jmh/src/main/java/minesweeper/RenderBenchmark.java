@@ -0,0 +1,63 @@
+package minesweeper;
+
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RenderBenchmark measures the {@link BoardRenderer} behind {@link Board#printBoard(boolean)} on
+ * an expert density board, writing to a stream that discards the frames. One random grid is
+ * checked before every frame, outside of the measurement, and the frame is rendered either whole
+ * or as the rows that changed.
+ *
+ * @author Si Yong Kim
+ * @version 1.0
+ * @since 2019-03-29
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RenderBenchmark {
+  /** Size of the board, as <code>HEIGHTxWIDTH</code> */
+  @Param({"9x9", "16x30", "100x100", "1000x1000", "10000x10000"})
+  public String size;
+
+  /** If only the changed rows are rendered */
+  @Param({"false", "true"})
+  public boolean changes;
+
+  private Board board;
+  private BoardRenderer renderer;
+  private SplittableRandom random;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    board = Boards.generate(Boards.parseSize(size), Boards.EXPERT_DENSITY);
+    renderer = new BoardRenderer(board, OutputStream.nullOutputStream());
+    random = new SplittableRandom(7);
+  }
+
+  @Setup(Level.Invocation)
+  public void check() {
+    Grid grid = Boards.gridAt(board, random.nextInt(board.size()));
+    if (!grid.isMine()) grid.checkGrid();
+  }
+
+  @Benchmark
+  public void render() {
+    if (changes) renderer.renderChanges(false);
+    else renderer.render(false);
+  }
+}